@@ -1,6 +1,16 @@
 package com.barium;
 
+import com.barium.optimization.BlockTickOptimizer;
+import com.barium.optimization.EntityThrottleGovernor;
+import com.barium.optimization.EntityTickOptimizer;
+import com.barium.optimization.PathfindingOptimizer;
+import com.barium.optimization.RedstoneOptimizer;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.inventory.Inventory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,7 +36,33 @@ public class BariumMod implements ModInitializer {
         // ChunkSavingOptimizer.init(); // Remover
 
         // A inicialização pode envolver o registro de listeners de eventos, se necessário.
-        // Exemplo: ServerTickEvents.END_SERVER_TICK.register(server -> { /* código */ });
+        // Estado por mundo dos otimizadores é descartado quando o mundo é descarregado.
+        ServerWorldEvents.UNLOAD.register((server, world) -> {
+            EntityTickOptimizer.clearWorldState(world);
+            EntityThrottleGovernor.clearWorldState(world);
+            PathfindingOptimizer.clearWorldState(world);
+            BlockTickOptimizer.clearWorldState(world);
+            RedstoneOptimizer.clearWorldState(world);
+        });
+        ServerChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> {
+            PathfindingOptimizer.onChunkUnloaded(world, chunk.getPos());
+            BlockTickOptimizer.onChunkUnloaded(world, chunk.getPos());
+            RedstoneOptimizer.onChunkUnloaded(world, chunk.getPos());
+        });
+        // Índice de entidades de item usado pela coleta dos hoppers; entidades com inventário
+        // (ex: minecarts com baú) surgindo ao lado de hoppers invalidam os inventários em cache
+        ServerEntityEvents.ENTITY_LOAD.register((entity, world) -> {
+            if (entity instanceof ItemEntity itemEntity) {
+                BlockTickOptimizer.onItemEntityLoaded(world, itemEntity);
+            } else if (entity instanceof Inventory) {
+                BlockTickOptimizer.onInventoryEntityMoved(entity, entity.getX(), entity.getY(), entity.getZ());
+            }
+        });
+        ServerEntityEvents.ENTITY_UNLOAD.register((entity, world) -> {
+            if (entity instanceof ItemEntity itemEntity) {
+                BlockTickOptimizer.onItemEntityUnloaded(world, itemEntity);
+            }
+        });
 
         LOGGER.info("Barium inicializado com sucesso!");
     }
@@ -15,21 +15,40 @@ public class BariumConfig {
     public static final boolean USE_SMART_CACHE = true;
     public static final boolean SIMPLIFY_COLLISION = true;
     public static final boolean REDUCE_OFFSCREEN_PATHFINDING = true;
-    public static final int PATH_CACHE_SIZE = 128;
+    public static final int PATH_CACHE_SIZE = 128; // Rotas compartilhadas por mundo
+    public static final boolean USE_SHARED_PATH_CACHE = true; // Mobs com o mesmo alvo, partindo da mesma região, reutilizam a rota
+    public static final boolean ENABLE_ASYNC_PATHFINDING = true; // Calcula rotas de mobs terrestres em threads separadas
+    public static final int ASYNC_PATHFINDING_THREADS = 2; // Threads do pool de pathfinding assíncrono
+    public static final int MAX_PENDING_ASYNC_PATHS = 256; // Pedidos assíncronos em andamento por mundo
+    public static final boolean ENABLE_HIERARCHICAL_PATHFINDING = true; // Rotas longas planejadas primeiro no grafo de seções de chunk
+    public static final int HIERARCHICAL_PATH_MIN_DISTANCE = 48; // Distância horizontal a partir da qual o planejador em dois níveis é usado
+    public static final int SECTION_GRAPH_BUILDS_PER_TICK = 8; // Seções analisadas por tick para o grafo de conectividade
+    public static final boolean ENABLE_PATH_REQUEST_BUDGET = true; // Limita o tempo gasto em buscas de rota por tick; o excesso passa para o próximo tick
+    public static final int PATH_REQUEST_BUDGET_MICROS = 2000; // Orçamento de tempo de busca de rota por tick e por mundo (microssegundos)
+    public static final int MIN_PATH_REQUESTS_PER_TICK = 2; // Buscas concedidas por tick mesmo com o orçamento esgotado
     public static final int PATH_UPDATE_INTERVAL_TICKS = 10;
     public static final int PATH_UPDATE_DISTANCE = 32;
 
     // --- BlockTickOptimizer --- //
     public static final boolean ENABLE_BLOCK_TICK_OPTIMIZATION = true;
-    public static final boolean USE_ON_DEMAND_TICKING = true;
+    public static final boolean USE_ON_DEMAND_TICKING = true; // Block entities ociosos (fornalhas, suportes de poções, fogueiras, colmeias) saem da lista de ticking até um evento
+    public static final int BLOCK_ENTITY_MAX_SLEEP_TICKS = 200; // Limite de segurança do sono dos block entities
     public static final boolean OPTIMIZE_HOPPERS = true;
     public static final int HOPPER_OPTIMIZATION_LEVEL = 2; // Exemplo, pode ser usado em shouldSkipHopperTick
+    public static final int HOPPER_MAX_SLEEP_TICKS = 200; // Hoppers ociosos dormem até um evento os acordar; este é o limite de segurança
+    public static final boolean USE_ITEM_ENTITY_INDEX = true; // Índice de itens por seção de chunk para a coleta dos hoppers
+    public static final boolean CACHE_INVENTORY_LOOKUPS = true; // Reutiliza o inventário resolvido de cada posição até o bloco mudar
 
     // --- RedstoneOptimizer --- //
     public static final boolean ENABLE_REDSTONE_OPTIMIZATION = true;
-    public static final boolean LIMIT_SIGNAL_PROPAGATION = true;
+    public static final boolean LIMIT_SIGNAL_PROPAGATION = true; // Calcula a potência de redes de fios de uma vez, com atualizações de vizinhos deduplicadas
+    public static final int REDSTONE_MAX_NETWORK_SIZE = 4096; // Redes de fios maiores ficam com o cálculo vanilla
+    public static final boolean COMPILE_REDSTONE_NETWORKS = true; // Grava a topologia de redes de fios que se repetem (relógios, portas) até um bloco da área mudar
     public static final boolean USE_COMPACT_QUEUE = true;
-    public static final int MAX_REDSTONE_UPDATES_PER_TICK = 1024;
+    public static final boolean DEDUPLICATE_NEIGHBOR_UPDATES = true; // Descarta atualizações de vizinhos repetidas no tick quando nada ao redor do bloco mudou
+    public static final boolean LIMIT_REDSTONE_LAG_MACHINES = true; // Adia as atualizações de redstone de chunks acima do orçamento na maior parte de uma janela de 1s (relógios rápidos) e relata as posições no log
+    public static final int MAX_REDSTONE_UPDATES_PER_TICK = 1024; // Orçamento de atualizações de vizinhos vindas de componentes de redstone por chunk e por tick
+    public static final int REDSTONE_LAG_THROTTLE_TICKS = 200; // Duração da limitação de um chunk acima do orçamento
 
     // --- ParticleOptimizer (Client-side) --- //
     public static final boolean ENABLE_PARTICLE_OPTIMIZATION = true; // Renomeado de ENABLE_PARTICLE_CULLING para consistência
@@ -42,10 +61,25 @@ public class BariumConfig {
     public static final boolean REDUCE_FAR_ENTITY_TICKS = true;
     public static final int ENTITY_FREEZE_DISTANCE = 48; // Distância para congelar completamente
     public static final int ENTITY_REDUCED_TICK_DISTANCE = 64; // Distância para reduzir frequência de ticks
+    public static final boolean USE_ENTITY_ACTIVATION_PASS = true; // Classifica todas as entidades uma vez por tick do mundo
+    public static final boolean PARALLEL_ENTITY_ACTIVATION = true; // Divide a classificação entre núcleos (fork-join)
+    public static final int ENTITY_ACTIVATION_PARALLEL_THRESHOLD = 4096; // Mínimo de entidades para usar o fork-join
+    public static final boolean ENABLE_ENTITY_WAKE_UP = true; // Dano, explosões, pistões, projéteis e blocos próximos acordam entidades
+    public static final int ENTITY_WAKE_UP_TICKS = 100; // Período de graça (em ticks) no nível ativo após acordar
+    public static final boolean COMPENSATE_SKIPPED_TICKS = true; // Aplica idade/temporizadores dos ticks pulados quando a entidade volta a tickar
+    public static final boolean ENABLE_ENTITY_TYPE_PROFILES = true; // Distâncias, intervalos e exceções por tipo de entidade
+    public static final boolean PROFILE_ENTITY_TICK_COST = true; // Amostra o custo de CPU do tick por tipo de entidade
+    public static final int ENTITY_COST_SAMPLE_INTERVAL = 64; // Cronometra 1 a cada N ticks de cada entidade
+    public static final boolean LOG_ENTITY_TICK_COSTS = false; // Registra periodicamente no log os tipos mais caros
+    public static final boolean ENABLE_ADAPTIVE_ENTITY_THROTTLING = true; // Ajusta os níveis de throttling para manter o MSPT alvo
+    public static final double TARGET_MSPT = 45.0; // MSPT alvo (ms por tick, somando todos os mundos)
+    public static final double MSPT_HYSTERESIS = 5.0; // Faixa morta em torno do alvo (ms)
+    public static final int MAX_THROTTLE_LEVEL = 4; // Nível máximo de pressão do governador
+    public static final int GOVERNOR_EVALUATION_INTERVAL_TICKS = 40; // Ticks do servidor entre avaliações do governador
 
     // --- InventoryOptimizer --- //
     public static final boolean ENABLE_INVENTORY_OPTIMIZATION = true;
-    public static final boolean CACHE_EMPTY_SLOTS = true;
+    public static final boolean CACHE_EMPTY_SLOTS = true; // Acompanha slots vazios, cheios e parciais de containers; hoppers pulam destinos cheios sem percorrer os slots
 
     // --- ChunkSavingOptimizer --- //
     public static final boolean ENABLE_CHUNK_SAVING_OPTIMIZATION = true;
@@ -0,0 +1,20 @@
+package com.barium.mixin;
+
+import net.minecraft.block.entity.AbstractFurnaceBlockEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para os campos de AbstractFurnaceBlockEntity usados para decidir se a fornalha pode dormir
+ * (tempo de queima restante e progresso de cozimento).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(AbstractFurnaceBlockEntity.class)
+public interface AbstractFurnaceBlockEntityAccessor {
+
+    @Accessor("litTimeRemaining")
+    int barium$getLitTimeRemaining();
+
+    @Accessor("cookingTimeSpent")
+    int barium$getCookingTimeSpent();
+}
@@ -1,8 +1,12 @@
 package com.barium.mixin;
 
 import com.barium.optimization.BlockTickOptimizer;
+import com.barium.optimization.RedstoneOptimizer;
+import com.barium.optimization.TrackedInventory;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.entity.BlockEntity;
 import net.minecraft.block.entity.BlockEntityType;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.spongepowered.asm.mixin.Mixin;
@@ -12,7 +16,9 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 /**
- * Mixin para BlockEntity para otimizar o ticking sob demanda.
+ * Mixin para BlockEntity para acordar hoppers e block entities dormindo quando um inventário muda
+ * e manter o estado dos slots de containers acompanhados.
+ * O ticking sob demanda em si fica em WorldMixin (lista de ticking de World.tickBlockEntities).
  * Baseado nos mappings Yarn 1.21.5+build.1
  */
 @Mixin(BlockEntity.class)
@@ -22,30 +28,37 @@ public abstract class BlockEntityMixin {
     @Shadow public abstract BlockPos getPos();
 
     /**
-     * Injeta no início do método de tick estático (geralmente chamado pelo World).
-     * O método exato pode variar dependendo do tipo de BlockEntity, mas muitos usam um padrão.
-     * Vamos mirar em um método comum se possível, ou este mixin pode precisar ser mais específico
-     * ou combinado com mixins em classes que chamam o tick (como World/ServerWorld).
+     * Injeta no markDirty() de instância: em containers acompanhados, um markDirty fora de setStack/removeStack
+     * significa que algum slot mudou direto no ItemStack (ver InventorySlotTracker).
      *
-     * Tentativa: Mirar em um método genérico chamado pelo ticker.
-     * A interface `BlockEntityTicker<T extends BlockEntity>` tem o método `tick(World, BlockPos, BlockState, T)`. 
-     * Precisamos mixar na implementação ou onde ela é chamada.
-     *
-     * Alternativa: Mixin em ServerWorld.tickBlockEntities?
-     *
-     * Por enquanto, vamos assumir que podemos interceptar o tick de alguma forma genérica.
-     * Este é um PONTO FRACO, pois não há um método `tick()` universal em BlockEntity.
-     * A lógica de `shouldSkipTickDemandBased` precisaria ser chamada ANTES do tick real ocorrer.
-     *
-     * Exemplo hipotético (NÃO FUNCIONAL DIRETAMENTE ASSIM):
-     * @Inject(method = "tick", at = @At("HEAD"), cancellable = true)
-     * private void barium$onTick(CallbackInfo ci) { ... }
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/BlockEntity;markDirty()V
+     */
+    @Inject(
+        method = "markDirty()V",
+        at = @At("HEAD")
+    )
+    private void barium$onInstanceMarkDirty(CallbackInfo ci) {
+        if ((Object)this instanceof TrackedInventory tracked) {
+            tracked.barium$getSlotTracker().onMarkDirty();
+        }
+    }
+
+    /**
+     * Injeta no markDirty estático, chamado tanto por BlockEntity.markDirty() quanto diretamente por
+     * BlockEntities que atualizam o próprio inventário no tick (ex: fornalhas).
+     * Acorda os hoppers que empurram para este inventário ou puxam dele e o próprio block entity, se estiver dormindo.
      *
-     * Abordagem mais realista: Mixin na classe que *chama* o tick.
-     * Ex: ServerWorld.tickBlockEntities ou ClientWorld.tickBlockEntities
-     * Vamos adiar este mixin específico até ter um alvo claro no chamador do tick.
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/BlockEntity;markDirty(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;)V
      */
-     
-    // TODO: Implementar injeção no local correto que chama o tick do BlockEntity.
-    //       Por exemplo, em ServerWorld ou ClientWorld.
+    @Inject(
+        method = "markDirty(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;)V",
+        at = @At("HEAD")
+    )
+    private static void barium$onMarkDirty(World world, BlockPos pos, BlockState state, CallbackInfo ci) {
+        if (world instanceof ServerWorld) {
+            BlockTickOptimizer.onInventoryChanged(world, pos);
+            // Comparadores ao redor leem os dados do block entity
+            RedstoneOptimizer.onBlockEntityChanged(world, pos);
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package com.barium.mixin;
+
+import net.minecraft.block.entity.BrewingStandBlockEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para os campos de BrewingStandBlockEntity usados para decidir se o suporte de poções pode dormir
+ * (tempo de preparo e combustível restante).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(BrewingStandBlockEntity.class)
+public interface BrewingStandBlockEntityAccessor {
+
+    @Accessor("brewTime")
+    int barium$getBrewTime();
+
+    @Accessor("fuel")
+    int barium$getFuel();
+}
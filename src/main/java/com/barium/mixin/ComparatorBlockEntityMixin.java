@@ -0,0 +1,33 @@
+package com.barium.mixin;
+
+import com.barium.optimization.RedstoneOptimizer;
+import net.minecraft.block.entity.ComparatorBlockEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para ComparatorBlockEntity: a saída do comparador pode mudar (ex: 4 -> 1) sem mudar o estado do bloco,
+ * e a deduplicação de atualizações de vizinhos precisa ver essa mudança (ver NeighborUpdateDeduplicator).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(ComparatorBlockEntity.class)
+public abstract class ComparatorBlockEntityMixin {
+
+    /**
+     * Injeta no início de setOutputSignal(), antes das atualizações de vizinhos que ComparatorBlock envia em seguida.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/ComparatorBlockEntity;setOutputSignal(I)V
+     */
+    @Inject(
+        method = "setOutputSignal(I)V",
+        at = @At("HEAD")
+    )
+    private void barium$onSetOutputSignal(int outputSignal, CallbackInfo ci) {
+        ComparatorBlockEntity self = (ComparatorBlockEntity)(Object)this;
+        if (self.getOutputSignal() != outputSignal && self.getWorld() != null && !self.getWorld().isClient()) {
+            RedstoneOptimizer.onBlockEntityChanged(self.getWorld(), self.getPos());
+        }
+    }
+}
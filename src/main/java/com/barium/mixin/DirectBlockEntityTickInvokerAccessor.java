@@ -0,0 +1,17 @@
+package com.barium.mixin;
+
+import net.minecraft.block.entity.BlockEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para o block entity de WorldChunk.DirectBlockEntityTickInvoker (classe privada),
+ * evitando a busca do block entity no chunk a cada tick.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(targets = "net.minecraft.world.chunk.WorldChunk$DirectBlockEntityTickInvoker")
+public interface DirectBlockEntityTickInvokerAccessor {
+
+    @Accessor("blockEntity")
+    BlockEntity barium$getBlockEntity();
+}
@@ -0,0 +1,20 @@
+package com.barium.mixin;
+
+import net.minecraft.inventory.DoubleInventory;
+import net.minecraft.inventory.Inventory;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para as duas metades de DoubleInventory (baús duplos), usadas pelo InventoryOptimizer.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(DoubleInventory.class)
+public interface DoubleInventoryAccessor {
+
+    @Accessor("first")
+    Inventory barium$getFirst();
+
+    @Accessor("second")
+    Inventory barium$getSecond();
+}
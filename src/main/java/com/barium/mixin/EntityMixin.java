@@ -1,57 +1,115 @@
 package com.barium.mixin;
 
+import com.barium.optimization.ActivationTierHolder;
+import com.barium.optimization.BlockTickOptimizer;
 import com.barium.optimization.EntityTickOptimizer;
+import com.barium.optimization.PathfindingOptimizer;
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.entity.MovementType;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
+import net.minecraft.world.explosion.Explosion;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 /**
- * Mixin para a classe Entity para otimizar o ticking de entidades distantes.
+ * Mixin para a classe Entity para manter o estado do otimizador de ticking de entidades.
+ * O pulo de ticks em si é feito em ServerWorldMixin (ServerWorld.tickEntity), que cobre o tick
+ * completo das subclasses.
  * Baseado nos mappings Yarn 1.21.5+build.1
  */
 @Mixin(Entity.class)
-public abstract class EntityMixin {
+public abstract class EntityMixin implements ActivationTierHolder {
 
     // Obtém acesso ao campo 'world' da classe Entity
     @Shadow public World world;
 
+    // Nível do passo de ativação deste tick, com o carimbo do passo (ver EntityActivationPass)
+    @Unique
+    private int barium$activationTier;
+
+    @Override
+    public int barium$getActivationTier() {
+        return barium$activationTier;
+    }
+
+    @Override
+    public void barium$setActivationTier(int tier) {
+        barium$activationTier = tier;
+    }
+
     /**
-     * Injeta no início do método tick() da entidade.
-     * Verifica se o tick da entidade deve ser pulado com base nas otimizações.
-     *
-     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/Entity;tick()V
+     * Injeta no método setRemoved() para limpar o estado da entidade nos otimizadores.
+     * 
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/Entity;setRemoved(Lnet/minecraft/entity/Entity$RemovalReason;)V
      */
     @Inject(
-        method = "tick()V",
-        at = @At("HEAD"),
-        cancellable = true
+        method = "setRemoved(Lnet/minecraft/entity/Entity$RemovalReason;)V",
+        at = @At("HEAD")
     )
-    private void barium$onTick(CallbackInfo ci) {
-        // Converte o 'this' do mixin para a instância de Entity
+    private void barium$onSetRemoved(Entity.RemovalReason reason, CallbackInfo ci) {
         Entity self = (Entity)(Object)this;
+        EntityTickOptimizer.clearEntityState(self);
+        PathfindingOptimizer.clearEntityState(self);
+    }
 
-        // Verifica se o tick deve ser pulado pelo otimizador
-        if (EntityTickOptimizer.shouldSkipEntityTick(self, this.world)) {
-            // Cancela a execução do método tick() original
-            ci.cancel();
+    /**
+     * Injeta no início de move() para acordar entidades empurradas por pistões ou shulker boxes.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/Entity;move(Lnet/minecraft/entity/MovementType;Lnet/minecraft/util/math/Vec3d;)V
+     */
+    @Inject(
+        method = "move(Lnet/minecraft/entity/MovementType;Lnet/minecraft/util/math/Vec3d;)V",
+        at = @At("HEAD")
+    )
+    private void barium$onMove(MovementType movementType, Vec3d movement, CallbackInfo ci) {
+        if (movementType == MovementType.PISTON || movementType == MovementType.SHULKER_BOX) {
+            EntityTickOptimizer.wakeEntity((Entity)(Object)this);
         }
     }
-    
+
     /**
-     * Injeta no método setRemoved() para limpar o estado da entidade no otimizador.
-     * 
-     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/Entity;setRemoved(Lnet/minecraft/entity/Entity$RemovalReason;)V
+     * Injeta em isImmuneToExplosion(), chamado pela explosão para cada entidade no seu alcance,
+     * para acordar a entidade antes de receber dano e empurrão.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/Entity;isImmuneToExplosion(Lnet/minecraft/world/explosion/Explosion;)Z
      */
     @Inject(
-        method = "setRemoved(Lnet/minecraft/entity/Entity$RemovalReason;)V",
+        method = "isImmuneToExplosion(Lnet/minecraft/world/explosion/Explosion;)Z",
         at = @At("HEAD")
     )
-    private void barium$onSetRemoved(Entity.RemovalReason reason, CallbackInfo ci) {
+    private void barium$onExplosionCheck(Explosion explosion, CallbackInfoReturnable<Boolean> cir) {
+        EntityTickOptimizer.wakeEntity((Entity)(Object)this);
+    }
+
+    /**
+     * Injeta no início de setPos() para acordar hoppers quando um item ou uma entidade com inventário
+     * (ex: minecart com baú) entra em um novo bloco e para manter o índice de itens por seção.
+     * Só atua quando o bloco da entidade muda.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/Entity;setPos(DDD)V
+     */
+    @Inject(
+        method = "setPos(DDD)V",
+        at = @At("HEAD")
+    )
+    private void barium$onSetPos(double x, double y, double z, CallbackInfo ci) {
         Entity self = (Entity)(Object)this;
-        EntityTickOptimizer.clearEntityState(self);
+        if (this.world == null || this.world.isClient() || !(self instanceof ItemEntity || self instanceof Inventory)) {
+            return;
+        }
+        BlockPos current = self.getBlockPos();
+        if (current.getX() != MathHelper.floor(x) || current.getY() != MathHelper.floor(y) || current.getZ() != MathHelper.floor(z)) {
+            BlockTickOptimizer.onInventoryEntityMoved(self, x, y, z);
+        }
     }
 }
@@ -0,0 +1,162 @@
+package com.barium.mixin;
+
+import com.barium.optimization.PathfindingOptimizer;
+import net.minecraft.entity.ai.pathing.EntityNavigation;
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.Set;
+
+/**
+ * Mixin para EntityNavigation para reutilizar rotas entre mobs através do cache compartilhado
+ * do PathfindingOptimizer e para calcular rotas fora da thread do servidor.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(EntityNavigation.class)
+public abstract class EntityNavigationMixin {
+
+    @Shadow @Final protected MobEntity entity;
+    @Shadow @Final protected World world;
+    @Shadow @Nullable protected Path currentPath;
+    @Shadow @Nullable private BlockPos currentTarget;
+    @Shadow private int currentDistance;
+
+    @Shadow protected abstract boolean isAtValidPosition();
+    @Shadow public abstract void resetRangeMultiplier();
+    @Shadow @Nullable protected abstract Path findPathToAny(Set<BlockPos> positions, int range, boolean useHeadPos, int distance, float followRange);
+
+    // Distância máxima entre o alvo da rota atual e o novo alvo para o mob continuar nela enquanto o pedido espera
+    @Unique private static final double DEFERRED_PATH_REUSE_DISTANCE = 8.0;
+
+    // Evita replanejar em dois níveis a busca do trecho até o ponto intermediário
+    @Unique private boolean barium$planningLeg;
+    // Início da busca concedida pelo orçamento de rotas (0 se não há busca cronometrada)
+    @Unique private long barium$requestStartNanos;
+
+    /**
+     * Injeta no início de findPathToAny() para responder com uma rota compartilhada antes da busca A*,
+     * para limitar as buscas ao orçamento de rotas do tick, para dividir rotas longas em trechos (grafo de seções)
+     * ou para delegar a busca ao pathfinding assíncrono.
+     * Só atua em buscas que o vanilla não resolveria com um retorno antecipado; o cache compartilhado, o grafo
+     * de seções e a busca assíncrona só valem para alvo único.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/ai/pathing/EntityNavigation;findPathToAny(Ljava/util/Set;IZIF)Lnet/minecraft/entity/ai/pathing/Path;
+     */
+    @Inject(
+        method = "findPathToAny(Ljava/util/Set;IZIF)Lnet/minecraft/entity/ai/pathing/Path;",
+        at = @At("HEAD"),
+        cancellable = true
+    )
+    private void barium$onFindPathToAny(Set<BlockPos> positions, int range, boolean useHeadPos, int distance, float followRange, CallbackInfoReturnable<Path> cir) {
+        if (positions.isEmpty() || this.world.isClient() || this.entity.getY() < this.world.getBottomY() || !this.isAtValidPosition()) {
+            return;
+        }
+        // A rota atual ainda leva ao alvo: o vanilla a devolve sem buscar
+        if (this.currentPath != null && !this.currentPath.isFinished() && positions.contains(this.currentTarget)) {
+            return;
+        }
+        boolean singleTarget = positions.size() == 1;
+        BlockPos target = positions.iterator().next();
+
+        if (singleTarget) {
+            Path path = PathfindingOptimizer.getSharedPath(this.entity, (EntityNavigation)(Object)this, target, range, useHeadPos, distance, followRange);
+            if (path != null) {
+                // Mesmo efeito colateral do vanilla após uma busca bem-sucedida
+                this.currentTarget = path.getTarget();
+                this.currentDistance = distance;
+                this.resetRangeMultiplier();
+                cir.setReturnValue(path);
+                return;
+            }
+        }
+
+        // O trecho do planejador em dois níveis já usa o orçamento da busca de fora
+        if (!this.barium$planningLeg) {
+            if (!PathfindingOptimizer.acquirePathRequest(this.entity, (EntityNavigation)(Object)this)) {
+                // Sem orçamento neste tick: o pedido passa para o próximo. Se a rota atual vai para perto do novo alvo
+                // (alvo em movimento), o mob continua nela; senão recebe a rota provisória (null seria lido como alvo
+                // inalcançável, e a rota para um alvo antigo pode levar na direção oposta, ex: FleeEntityGoal)
+                Path current = this.currentPath;
+                boolean keepCurrent = current != null && !current.isFinished() && this.currentTarget != null
+                        && this.currentTarget.isWithinDistance(target, DEFERRED_PATH_REUSE_DISTANCE);
+                cir.setReturnValue(keepCurrent ? current : PathfindingOptimizer.createDeferredPath(this.entity, target));
+                return;
+            }
+            this.barium$requestStartNanos = System.nanoTime();
+        }
+        if (!singleTarget) {
+            return;
+        }
+
+        // Alvo distante: a rota fina vai só até a entrada da seção depois da próxima (planejador em dois níveis)
+        if (!this.barium$planningLeg) {
+            BlockPos waypoint = PathfindingOptimizer.getHierarchicalWaypoint(this.entity, (EntityNavigation)(Object)this, target);
+            if (waypoint != null) {
+                Path leg;
+                this.barium$planningLeg = true;
+                try {
+                    leg = this.findPathToAny(Set.of(waypoint), range, false, 0, followRange);
+                } finally {
+                    this.barium$planningLeg = false;
+                }
+                if (leg != null) {
+                    // A navegação segue o trecho como rota para o alvo final e replaneja quando ele termina
+                    this.currentTarget = target;
+                    this.currentDistance = distance;
+                    leg = PathfindingOptimizer.retarget(leg, target);
+                }
+                this.barium$finishRequest();
+                cir.setReturnValue(leg);
+                return;
+            }
+        }
+
+        // Rota sendo calculada fora da thread: o mob fica na rota provisória até o resultado chegar ao cache compartilhado
+        if (PathfindingOptimizer.requestAsyncPath(this.entity, (EntityNavigation)(Object)this, target, range, useHeadPos, distance, followRange)) {
+            this.barium$finishRequest();
+            cir.setReturnValue(PathfindingOptimizer.createDeferredPath(this.entity, target));
+        }
+    }
+
+    /**
+     * Informa ao orçamento de rotas o tempo gasto na busca concedida em barium$onFindPathToAny.
+     * Dentro do trecho do planejador em dois níveis não faz nada: a busca de fora é que é cronometrada.
+     */
+    @Unique
+    private void barium$finishRequest() {
+        if (this.barium$requestStartNanos != 0L && !this.barium$planningLeg) {
+            PathfindingOptimizer.onPathRequestFinished(this.entity, System.nanoTime() - this.barium$requestStartNanos);
+            this.barium$requestStartNanos = 0L;
+        }
+    }
+
+    /**
+     * Injeta no retorno de findPathToAny() para registrar o custo da busca no orçamento de rotas
+     * e publicar a rota recém-calculada no cache compartilhado.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/ai/pathing/EntityNavigation;findPathToAny(Ljava/util/Set;IZIF)Lnet/minecraft/entity/ai/pathing/Path;
+     */
+    @Inject(
+        method = "findPathToAny(Ljava/util/Set;IZIF)Lnet/minecraft/entity/ai/pathing/Path;",
+        at = @At("RETURN")
+    )
+    private void barium$afterFindPathToAny(Set<BlockPos> positions, int range, boolean useHeadPos, int distance, float followRange, CallbackInfoReturnable<Path> cir) {
+        this.barium$finishRequest();
+        Path path = cir.getReturnValue();
+        // Ignora retornos sem rota e a rota atual devolvida sem busca
+        if (path == null || path == this.currentPath || positions.size() != 1 || this.world.isClient()) {
+            return;
+        }
+        PathfindingOptimizer.cacheSharedPath(this.entity, (EntityNavigation)(Object)this, positions.iterator().next(), range, useHeadPos, distance, followRange, path);
+    }
+}
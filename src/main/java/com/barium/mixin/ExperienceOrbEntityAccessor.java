@@ -0,0 +1,19 @@
+package com.barium.mixin;
+
+import net.minecraft.entity.ExperienceOrbEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para a idade privada de ExperienceOrbEntity (usada para despawn).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(ExperienceOrbEntity.class)
+public interface ExperienceOrbEntityAccessor {
+
+    @Accessor("orbAge")
+    int barium$getOrbAge();
+
+    @Accessor("orbAge")
+    void barium$setOrbAge(int orbAge);
+}
@@ -0,0 +1,20 @@
+package com.barium.mixin;
+
+import net.minecraft.block.entity.HopperBlockEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para os campos privados de HopperBlockEntity usados pelo sono dos hoppers
+ * (cooldown de transferência e tempo do último tick).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(HopperBlockEntity.class)
+public interface HopperBlockEntityAccessor {
+
+    @Accessor("transferCooldown")
+    int barium$getTransferCooldown();
+
+    @Accessor("lastTickTime")
+    void barium$setLastTickTime(long lastTickTime);
+}
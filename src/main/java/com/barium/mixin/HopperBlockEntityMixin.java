@@ -1,14 +1,23 @@
 package com.barium.mixin;
 
 import com.barium.optimization.BlockTickOptimizer;
+import com.barium.optimization.InventoryLookupCache;
+import com.barium.optimization.InventoryOptimizer;
 import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.Hopper;
 import net.minecraft.block.entity.HopperBlockEntity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.inventory.Inventory;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
 import net.minecraft.world.World;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.List;
 
 /**
  * Mixin para HopperBlockEntity para otimizar o ticking específico de hoppers.
@@ -19,7 +28,7 @@ public abstract class HopperBlockEntityMixin {
 
     /**
      * Injeta no início do método estático serverTick, que é chamado pelo BlockEntityTicker.
-     * Verifica se o tick do hopper deve ser pulado com base nas otimizações.
+     * Pula o tick de hoppers dormindo (ver BlockTickOptimizer.shouldSkipHopperTick).
      *
      * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/HopperBlockEntity;serverTick(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Lnet/minecraft/block/entity/HopperBlockEntity;)V
      */
@@ -32,11 +41,128 @@ public abstract class HopperBlockEntityMixin {
     private static void barium$onServerTick(World world, BlockPos pos, BlockState state, HopperBlockEntity blockEntity, CallbackInfo ci) {
         // Verifica se o tick deve ser pulado pelo otimizador
         if (BlockTickOptimizer.shouldSkipHopperTick(blockEntity, world)) {
+            // Mantém o tempo do último tick como o vanilla (usado no cooldown de transferências entre hoppers)
+            ((HopperBlockEntityAccessor) blockEntity).barium$setLastTickTime(world.getTime());
             // Cancela a execução do método serverTick original
             ci.cancel();
         }
     }
-    
+
+    /**
+     * Injeta no fim de serverTick para colocar o hopper para dormir se o tick não moveu nenhum item.
+     * Uma transferência bem-sucedida sempre define o cooldown; cooldown zerado ao fim do tick significa
+     * que o hopper tentou transferir e não conseguiu.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/HopperBlockEntity;serverTick(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Lnet/minecraft/block/entity/HopperBlockEntity;)V
+     */
+    @Inject(
+        method = "serverTick(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Lnet/minecraft/block/entity/HopperBlockEntity;)V",
+        at = @At("TAIL")
+    )
+    private static void barium$afterServerTick(World world, BlockPos pos, BlockState state, HopperBlockEntity blockEntity, CallbackInfo ci) {
+        BlockTickOptimizer.onHopperTicked(blockEntity, world, ((HopperBlockEntityAccessor) blockEntity).barium$getTransferCooldown());
+    }
+
+    /**
+     * Injeta no início de getInputItemEntities, usado por hoppers e minecarts com hopper para coletar itens.
+     * Se o índice de entidades de item garante que a área está vazia, devolve a lista vazia sem buscar entidades.
+     * Com itens na área, a busca vanilla roda normalmente (mesma ordem de coleta).
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/HopperBlockEntity;getInputItemEntities(Lnet/minecraft/world/World;Lnet/minecraft/block/entity/Hopper;)Ljava/util/List;
+     */
+    @Inject(
+        method = "getInputItemEntities(Lnet/minecraft/world/World;Lnet/minecraft/block/entity/Hopper;)Ljava/util/List;",
+        at = @At("HEAD"),
+        cancellable = true
+    )
+    private static void barium$onGetInputItemEntities(World world, Hopper hopper, CallbackInfoReturnable<List<ItemEntity>> cir) {
+        if (!BlockTickOptimizer.canPickupItems(world, hopper)) {
+            cir.setReturnValue(List.of());
+        }
+    }
+
+    /**
+     * Injeta no início de isInventoryFull, chamado antes de cada tentativa de inserção, para responder pelos bitsets
+     * de slots do destino (ver InventoryOptimizer) em vez de percorrer os slots. Só a resposta "cheio" é antecipada;
+     * com espaço, o vanilla ainda confere os slots disponíveis pelo lado.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/HopperBlockEntity;isInventoryFull(Lnet/minecraft/inventory/Inventory;Lnet/minecraft/util/math/Direction;)Z
+     */
+    @Inject(
+        method = "isInventoryFull(Lnet/minecraft/inventory/Inventory;Lnet/minecraft/util/math/Direction;)Z",
+        at = @At("HEAD"),
+        cancellable = true
+    )
+    private static void barium$onIsInventoryFull(Inventory inventory, Direction direction, CallbackInfoReturnable<Boolean> cir) {
+        if (InventoryOptimizer.canSkipFullInventoryCheck(inventory, null)) {
+            cir.setReturnValue(true);
+        }
+    }
+
+    /**
+     * Injeta no início de getInventoryAt, que resolve o inventário de destino de hoppers, droppers e crafters,
+     * para devolver o inventário em cache da posição (ver InventoryLookupCache).
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/HopperBlockEntity;getInventoryAt(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/inventory/Inventory;
+     */
+    @Inject(
+        method = "getInventoryAt(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/inventory/Inventory;",
+        at = @At("HEAD"),
+        cancellable = true
+    )
+    private static void barium$onGetInventoryAt(World world, BlockPos pos, CallbackInfoReturnable<Inventory> cir) {
+        InventoryLookupCache.Entry entry = BlockTickOptimizer.getCachedInventory(world, pos);
+        if (entry != null) {
+            cir.setReturnValue(entry.inventory());
+        }
+    }
+
+    /**
+     * Guarda o inventário resolvido pelo vanilla em getInventoryAt.
+     */
+    @Inject(
+        method = "getInventoryAt(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/inventory/Inventory;",
+        at = @At("RETURN")
+    )
+    private static void barium$afterGetInventoryAt(World world, BlockPos pos, CallbackInfoReturnable<Inventory> cir) {
+        BlockTickOptimizer.cacheInventory(world, pos, cir.getReturnValue());
+    }
+
+    /**
+     * Injeta no início de getInputInventory, que resolve o inventário acima de um hopper.
+     * Para o bloco hopper, a caixa de busca de entidades é exatamente a do bloco acima, a mesma de
+     * getInventoryAt(world, pos): as duas consultas compartilham o cache. Minecarts com hopper usam
+     * a própria posição e sempre passam pelo vanilla.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/HopperBlockEntity;getInputInventory(Lnet/minecraft/world/World;Lnet/minecraft/block/entity/Hopper;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;)Lnet/minecraft/inventory/Inventory;
+     */
+    @Inject(
+        method = "getInputInventory(Lnet/minecraft/world/World;Lnet/minecraft/block/entity/Hopper;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;)Lnet/minecraft/inventory/Inventory;",
+        at = @At("HEAD"),
+        cancellable = true
+    )
+    private static void barium$onGetInputInventory(World world, Hopper hopper, BlockPos pos, BlockState state, CallbackInfoReturnable<Inventory> cir) {
+        if (hopper instanceof HopperBlockEntity) {
+            InventoryLookupCache.Entry entry = BlockTickOptimizer.getCachedInventory(world, pos);
+            if (entry != null) {
+                cir.setReturnValue(entry.inventory());
+            }
+        }
+    }
+
+    /**
+     * Guarda o inventário resolvido pelo vanilla em getInputInventory (apenas para o bloco hopper).
+     */
+    @Inject(
+        method = "getInputInventory(Lnet/minecraft/world/World;Lnet/minecraft/block/entity/Hopper;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;)Lnet/minecraft/inventory/Inventory;",
+        at = @At("RETURN")
+    )
+    private static void barium$afterGetInputInventory(World world, Hopper hopper, BlockPos pos, BlockState state, CallbackInfoReturnable<Inventory> cir) {
+        if (hopper instanceof HopperBlockEntity) {
+            BlockTickOptimizer.cacheInventory(world, pos, cir.getReturnValue());
+        }
+    }
+
     /**
      * Poderíamos adicionar um mixin semelhante para clientTick se houver otimizações relevantes
      * para o lado do cliente (ex: animações), mas as otimizações atuais são focadas na lógica do servidor.
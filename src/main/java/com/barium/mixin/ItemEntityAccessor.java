@@ -0,0 +1,25 @@
+package com.barium.mixin;
+
+import net.minecraft.entity.ItemEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para os temporizadores privados de ItemEntity (idade para despawn e atraso de coleta).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(ItemEntity.class)
+public interface ItemEntityAccessor {
+
+    @Accessor("itemAge")
+    int barium$getItemAge();
+
+    @Accessor("itemAge")
+    void barium$setItemAge(int itemAge);
+
+    @Accessor("pickupDelay")
+    int barium$getPickupDelay();
+
+    @Accessor("pickupDelay")
+    void barium$setPickupDelay(int pickupDelay);
+}
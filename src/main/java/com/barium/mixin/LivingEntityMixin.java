@@ -0,0 +1,33 @@
+package com.barium.mixin;
+
+import com.barium.optimization.EntityTickOptimizer;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.damage.DamageSource;
+import net.minecraft.server.world.ServerWorld;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Mixin para LivingEntity para acordar entidades congeladas quando recebem dano.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(LivingEntity.class)
+public abstract class LivingEntityMixin {
+
+    /**
+     * Injeta no início de damage(): dano (inclusive de projéteis e explosões) acorda a entidade,
+     * para que ela reaja no mesmo tick em vez de esperar o próximo tick de entidade congelada.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/LivingEntity;damage(Lnet/minecraft/server/world/ServerWorld;Lnet/minecraft/entity/damage/DamageSource;F)Z
+     */
+    @Inject(
+        method = "damage(Lnet/minecraft/server/world/ServerWorld;Lnet/minecraft/entity/damage/DamageSource;F)Z",
+        at = @At("HEAD")
+    )
+    private void barium$onDamage(ServerWorld world, DamageSource source, float amount, CallbackInfoReturnable<Boolean> cir) {
+        EntityTickOptimizer.wakeEntity((Entity)(Object)this);
+    }
+}
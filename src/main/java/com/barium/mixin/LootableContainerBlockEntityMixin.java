@@ -0,0 +1,107 @@
+package com.barium.mixin;
+
+import com.barium.optimization.BlockTickOptimizer;
+import com.barium.optimization.InventorySlotTracker;
+import com.barium.optimization.TrackedInventory;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.LootableContainerBlockEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.world.ServerWorld;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Mixin para LootableContainerBlockEntity (baús, barris, dispensers, droppers, hoppers, shulker boxes)
+ * para acordar hoppers quando um slot muda sem markDirty (ex: um dropper disparando um item) e acompanhar
+ * o estado dos slots (ver InventorySlotTracker).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(LootableContainerBlockEntity.class)
+public abstract class LootableContainerBlockEntityMixin implements TrackedInventory {
+
+    @Unique
+    private final InventorySlotTracker barium$slotTracker = new InventorySlotTracker();
+
+    @Override
+    public InventorySlotTracker barium$getSlotTracker() {
+        return barium$slotTracker;
+    }
+
+    /**
+     * Injeta no início de setStack(): o markDirty interno faz parte da mudança de um único slot.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/LootableContainerBlockEntity;setStack(ILnet/minecraft/item/ItemStack;)V
+     */
+    @Inject(
+        method = "setStack(ILnet/minecraft/item/ItemStack;)V",
+        at = @At("HEAD")
+    )
+    private void barium$beforeSetStack(int slot, ItemStack stack, CallbackInfo ci) {
+        barium$slotTracker.beginSlotChange();
+    }
+
+    /**
+     * Injeta no fim de setStack() para marcar o slot alterado e acordar os hoppers ao redor do container.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/LootableContainerBlockEntity;setStack(ILnet/minecraft/item/ItemStack;)V
+     */
+    @Inject(
+        method = "setStack(ILnet/minecraft/item/ItemStack;)V",
+        at = @At("TAIL")
+    )
+    private void barium$onSetStack(int slot, ItemStack stack, CallbackInfo ci) {
+        barium$slotTracker.endSlotChange(slot);
+        BlockEntity self = (BlockEntity)(Object)this;
+        if (self.getWorld() instanceof ServerWorld world) {
+            BlockTickOptimizer.onInventoryChanged(world, self.getPos());
+        }
+    }
+
+    /**
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/LootableContainerBlockEntity;removeStack(II)Lnet/minecraft/item/ItemStack;
+     */
+    @Inject(
+        method = "removeStack(II)Lnet/minecraft/item/ItemStack;",
+        at = @At("HEAD")
+    )
+    private void barium$beforeRemoveStack(int slot, int amount, CallbackInfoReturnable<ItemStack> cir) {
+        barium$slotTracker.beginSlotChange();
+    }
+
+    /**
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/LootableContainerBlockEntity;removeStack(II)Lnet/minecraft/item/ItemStack;
+     */
+    @Inject(
+        method = "removeStack(II)Lnet/minecraft/item/ItemStack;",
+        at = @At("RETURN")
+    )
+    private void barium$afterRemoveStack(int slot, int amount, CallbackInfoReturnable<ItemStack> cir) {
+        barium$slotTracker.endSlotChange(slot);
+    }
+
+    /**
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/LootableContainerBlockEntity;removeStack(I)Lnet/minecraft/item/ItemStack;
+     */
+    @Inject(
+        method = "removeStack(I)Lnet/minecraft/item/ItemStack;",
+        at = @At("HEAD")
+    )
+    private void barium$beforeRemoveWholeStack(int slot, CallbackInfoReturnable<ItemStack> cir) {
+        barium$slotTracker.beginSlotChange();
+    }
+
+    /**
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/LootableContainerBlockEntity;removeStack(I)Lnet/minecraft/item/ItemStack;
+     */
+    @Inject(
+        method = "removeStack(I)Lnet/minecraft/item/ItemStack;",
+        at = @At("RETURN")
+    )
+    private void barium$afterRemoveWholeStack(int slot, CallbackInfoReturnable<ItemStack> cir) {
+        barium$slotTracker.endSlotChange(slot);
+    }
+}
@@ -0,0 +1,32 @@
+package com.barium.mixin;
+
+import com.barium.optimization.EntityTickOptimizer;
+import net.minecraft.entity.projectile.ProjectileEntity;
+import net.minecraft.util.hit.EntityHitResult;
+import net.minecraft.util.hit.HitResult;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para ProjectileEntity para acordar entidades atingidas por projéteis.
+ * Cobre também alvos que não são LivingEntity (item frames, minecarts, barcos).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(ProjectileEntity.class)
+public abstract class ProjectileEntityMixin {
+
+    /**
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/projectile/ProjectileEntity;onCollision(Lnet/minecraft/util/hit/HitResult;)V
+     */
+    @Inject(
+        method = "onCollision(Lnet/minecraft/util/hit/HitResult;)V",
+        at = @At("HEAD")
+    )
+    private void barium$onCollision(HitResult hitResult, CallbackInfo ci) {
+        if (hitResult instanceof EntityHitResult entityHitResult) {
+            EntityTickOptimizer.wakeEntity(entityHitResult.getEntity());
+        }
+    }
+}
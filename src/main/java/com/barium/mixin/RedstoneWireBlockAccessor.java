@@ -0,0 +1,17 @@
+package com.barium.mixin;
+
+import net.minecraft.block.RedstoneWireBlock;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para o campo wiresGivePower de RedstoneWireBlock, desligado pelo vanilla (e pelo RedstoneWireEngine)
+ * para ler a potência que um fio recebe de fontes que não são fios.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(RedstoneWireBlock.class)
+public interface RedstoneWireBlockAccessor {
+
+    @Accessor("wiresGivePower")
+    void barium$setWiresGivePower(boolean wiresGivePower);
+}
@@ -0,0 +1,38 @@
+package com.barium.mixin;
+
+import com.barium.optimization.RedstoneOptimizer;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.RedstoneWireBlock;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.block.WireOrientation;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para RedstoneWireBlock para calcular a potência dos fios com o RedstoneWireEngine.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(RedstoneWireBlock.class)
+public abstract class RedstoneWireBlockMixin {
+
+    /**
+     * Injeta no início de update(), chamado quando um fio é colocado ou recebe uma atualização de vizinho.
+     * Se o motor tratar a atualização (rede inteira recalculada de uma vez), o cálculo vanilla é cancelado.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/RedstoneWireBlock;update(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Lnet/minecraft/world/block/WireOrientation;Z)V
+     */
+    @Inject(
+        method = "update(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Lnet/minecraft/world/block/WireOrientation;Z)V",
+        at = @At("HEAD"),
+        cancellable = true
+    )
+    private void barium$onUpdate(World world, BlockPos pos, BlockState state, @Nullable WireOrientation orientation, boolean blockAdded, CallbackInfo ci) {
+        if (RedstoneOptimizer.updateWire(world, pos, state, (RedstoneWireBlock)(Object)this)) {
+            ci.cancel();
+        }
+    }
+}
@@ -1,6 +1,12 @@
 package com.barium.mixin;
 
 import com.barium.optimization.ChunkSavingOptimizer;
+import com.barium.optimization.EntityTickCostTracker;
+import com.barium.optimization.EntityThrottleGovernor;
+import com.barium.optimization.EntityTickOptimizer;
+import com.barium.optimization.PathfindingOptimizer;
+import com.barium.optimization.RedstoneOptimizer;
+import net.minecraft.entity.Entity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.world.chunk.Chunk;
 import org.spongepowered.asm.mixin.Mixin;
@@ -9,12 +15,56 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
 /**
- * Mixin para ServerWorld para acionar o processamento da fila de salvamento de chunks.
+ * Mixin para ServerWorld para acionar o processamento da fila de salvamento de chunks
+ * e a preparação por tick dos otimizadores de entidades.
  * Corrigido: Chamada para processSaveQueue() em vez de método inexistente.
  */
 @Mixin(ServerWorld.class)
 public class ServerWorldMixin {
 
+    /**
+     * Injeta no início do tick do ServerWorld, antes de qualquer entidade tickar.
+     * Prepara o estado por tick dos otimizadores (ex: índice espacial de jogadores).
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/server/world/ServerWorld;tick(Ljava/util/function/BooleanSupplier;)V
+     */
+    @Inject(method = "tick(Ljava/util/function/BooleanSupplier;)V", at = @At("HEAD"))
+    private void barium$onTickStart(CallbackInfo ci) {
+        ServerWorld self = (ServerWorld)(Object)this;
+        EntityThrottleGovernor.onWorldTickStart(self);
+        // Reconstrói o índice de jogadores antes de qualquer entidade do mundo tickar
+        EntityTickOptimizer.onWorldTickStart(self);
+        // Entrega as rotas calculadas fora da thread antes de os mobs pedirem rotas novamente
+        PathfindingOptimizer.onWorldTickStart(self);
+    }
+
+    /**
+     * Injeta no início do tick de cada entidade do mundo.
+     * Este é o ponto de entrada único do tick (inclui os passageiros e o tick completo das subclasses),
+     * ao contrário de Entity.tick(), que as subclasses sobrescrevem e chamam via super.
+     * O nível de ativação já foi calculado pelo passo de ativação, então a verificação é uma leitura de array.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/server/world/ServerWorld;tickEntity(Lnet/minecraft/entity/Entity;)V
+     */
+    @Inject(method = "tickEntity(Lnet/minecraft/entity/Entity;)V", at = @At("HEAD"), cancellable = true)
+    private void barium$onTickEntity(Entity entity, CallbackInfo ci) {
+        ServerWorld self = (ServerWorld)(Object)this;
+        if (EntityTickOptimizer.shouldSkipEntityTick(entity, self)) {
+            ci.cancel();
+            return;
+        }
+        // Cronometra uma amostra dos ticks executados para estimar o custo por tipo
+        EntityTickCostTracker.beginSample(entity, self.getTime());
+    }
+
+    /**
+     * Encerra a cronometragem iniciada em barium$onTickEntity (não é chamado para ticks pulados).
+     */
+    @Inject(method = "tickEntity(Lnet/minecraft/entity/Entity;)V", at = @At("RETURN"))
+    private void barium$onTickEntityEnd(Entity entity, CallbackInfo ci) {
+        EntityTickCostTracker.endSample(entity);
+    }
+
     /**
      * Injeta no início do método save do ServerWorld.
      * O ideal seria injetar em um ponto onde o salvamento de chunks é gerenciado,
@@ -32,6 +82,12 @@ public class ServerWorldMixin {
         // Processa a fila de salvamento de chunks no final de cada tick do servidor
         // Isso garante que os chunks sejam salvos periodicamente.
         ChunkSavingOptimizer.processSaveQueue();
+
+        // Alimenta o governador de throttling com o tempo de tick deste mundo
+        EntityThrottleGovernor.onWorldTickEnd((ServerWorld)(Object)this);
+
+        // Drena a fila de atualizações de redstone deste mundo (cada dimensão tem a sua)
+        RedstoneOptimizer.onWorldTickEnd((ServerWorld)(Object)this);
     }
 
     /* 
@@ -0,0 +1,38 @@
+package com.barium.mixin;
+
+import com.barium.optimization.RedstoneOptimizer;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.block.NeighborUpdater;
+import net.minecraft.world.block.WireOrientation;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+/**
+ * Mixin para a entrada simples de ChainRestrictedNeighborUpdater, enfileirada por World.updateNeighbor
+ * (ex: atualizações enviadas pelo RedstoneWireEngine), para descartar atualizações redundantes
+ * (ver NeighborUpdateDeduplicator).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(targets = "net.minecraft.world.block.ChainRestrictedNeighborUpdater$SimpleEntry")
+public abstract class SimpleNeighborUpdateEntryMixin {
+
+    /**
+     * Redireciona a entrega da atualização.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/world/block/ChainRestrictedNeighborUpdater$SimpleEntry;update(Lnet/minecraft/world/World;)Z
+     */
+    @Redirect(
+        method = "update(Lnet/minecraft/world/World;)Z",
+        at = @At(value = "INVOKE", target = "Lnet/minecraft/world/block/NeighborUpdater;tryNeighborUpdate(Lnet/minecraft/world/World;Lnet/minecraft/block/BlockState;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/Block;Lnet/minecraft/world/block/WireOrientation;Z)V")
+    )
+    private void barium$deliverNeighborUpdate(World world, BlockState state, BlockPos pos, Block sourceBlock, @Nullable WireOrientation orientation, boolean notify) {
+        if (RedstoneOptimizer.shouldDeliverNeighborUpdate(world, pos, state, sourceBlock, orientation)) {
+            NeighborUpdater.tryNeighborUpdate(world, state, pos, sourceBlock, orientation, notify);
+        }
+    }
+}
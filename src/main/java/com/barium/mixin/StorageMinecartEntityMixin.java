@@ -0,0 +1,51 @@
+package com.barium.mixin;
+
+import com.barium.optimization.BlockTickOptimizer;
+import net.minecraft.entity.vehicle.StorageMinecartEntity;
+import net.minecraft.item.ItemStack;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para StorageMinecartEntity (minecarts com baú e com hopper) para acordar hoppers dormindo quando
+ * o inventário do minecart muda sem que ele se mova.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(StorageMinecartEntity.class)
+public abstract class StorageMinecartEntityMixin {
+
+    /**
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/vehicle/StorageMinecartEntity;setStack(ILnet/minecraft/item/ItemStack;)V
+     */
+    @Inject(
+        method = "setStack(ILnet/minecraft/item/ItemStack;)V",
+        at = @At("TAIL")
+    )
+    private void barium$onSetStack(int slot, ItemStack stack, CallbackInfo ci) {
+        barium$onInventoryChanged();
+    }
+
+    /**
+     * Injeta em markDirty(), chamado depois de mudanças feitas direto no ItemStack (ex: hopper somando a um stack).
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/entity/vehicle/StorageMinecartEntity;markDirty()V
+     */
+    @Inject(
+        method = "markDirty()V",
+        at = @At("TAIL")
+    )
+    private void barium$onMarkDirty(CallbackInfo ci) {
+        barium$onInventoryChanged();
+    }
+
+    @Unique
+    private void barium$onInventoryChanged() {
+        StorageMinecartEntity self = (StorageMinecartEntity)(Object)this;
+        if (!self.getWorld().isClient()) {
+            BlockTickOptimizer.onInventoryEntityChanged(self);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.barium.mixin;
+
+import com.barium.optimization.RedstoneOptimizer;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.entity.TrappedChestBlockEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Mixin para TrappedChestBlockEntity: a potência do baú com armadilha é a quantidade de jogadores com ele aberto,
+ * que muda sem mudar o estado do bloco. A deduplicação de atualizações de vizinhos precisa ver essa mudança
+ * (ver NeighborUpdateDeduplicator).
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(TrappedChestBlockEntity.class)
+public abstract class TrappedChestBlockEntityMixin {
+
+    /**
+     * Injeta no início de onViewerCountUpdate(), antes das atualizações de vizinhos do baú.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/block/entity/TrappedChestBlockEntity;onViewerCountUpdate(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)V
+     */
+    @Inject(
+        method = "onViewerCountUpdate(Lnet/minecraft/world/World;Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)V",
+        at = @At("HEAD")
+    )
+    private void barium$onViewerCountUpdate(World world, BlockPos pos, BlockState state, int oldViewerCount, int newViewerCount, CallbackInfo ci) {
+        if (oldViewerCount != newViewerCount && !world.isClient()) {
+            RedstoneOptimizer.onBlockEntityChanged(world, pos);
+        }
+    }
+}
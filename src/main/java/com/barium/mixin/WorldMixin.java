@@ -0,0 +1,96 @@
+package com.barium.mixin;
+
+import com.barium.optimization.BlockTickOptimizer;
+import com.barium.optimization.EntityTickOptimizer;
+import com.barium.optimization.PathfindingOptimizer;
+import com.barium.optimization.RedstoneOptimizer;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.BlockEntityTickInvoker;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+/**
+ * Mixin para World para notificar os otimizadores sobre mudanças de bloco e gerenciar a lista
+ * de ticking de block entities.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(World.class)
+public abstract class WorldMixin {
+
+    /**
+     * Injeta no retorno de setBlockState(), o ponto por onde passam todas as mudanças de bloco do mundo.
+     * Só repassa mudanças efetivas (retorno true) no lado do servidor.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/world/World;setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)Z
+     */
+    @Inject(
+        method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)Z",
+        at = @At("RETURN")
+    )
+    private void barium$onSetBlockState(BlockPos pos, BlockState state, int flags, int maxUpdateDepth, CallbackInfoReturnable<Boolean> cir) {
+        World self = (World)(Object)this;
+        if (!cir.getReturnValueZ() || self.isClient()) {
+            return;
+        }
+        // Entidades congeladas na mesma seção voltam a tickar normalmente por um período de graça
+        EntityTickOptimizer.onBlockChanged(self, pos);
+        // Avança a versão da seção: caches de rotas e colisão que dependem dela deixam de ser válidos
+        PathfindingOptimizer.onBlockChanged(self, pos);
+        // Hoppers dormindo ao redor voltam a tentar transferir
+        BlockTickOptimizer.onBlockChanged(self, pos);
+    }
+
+    /**
+     * Injeta no início de setBlockState(), antes das atualizações de vizinhos que a própria mudança dispara
+     * (elas rodam dentro de setBlockState). O estado de redstone precisa ver a mudança antes delas: a versão
+     * da seção avança (deduplicação de atualizações), redes de fios compiladas da área são descartadas e redes
+     * enviando atualizações são marcadas para recálculo. Avisar de uma mudança que acaba não acontecendo
+     * só causa trabalho extra.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/world/World;setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)Z
+     */
+    @Inject(
+        method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)Z",
+        at = @At("HEAD")
+    )
+    private void barium$beforeSetBlockState(BlockPos pos, BlockState state, int flags, int maxUpdateDepth, CallbackInfoReturnable<Boolean> cir) {
+        World self = (World)(Object)this;
+        if (!self.isClient()) {
+            RedstoneOptimizer.onBlockChanged(self, pos, state);
+        }
+    }
+
+    /**
+     * Injeta no início de tickBlockEntities para devolver à lista os block entities cujo sono de segurança acabou.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/world/World;tickBlockEntities()V
+     */
+    @Inject(
+        method = "tickBlockEntities()V",
+        at = @At("HEAD")
+    )
+    private void barium$onTickBlockEntities(CallbackInfo ci) {
+        BlockTickOptimizer.onBlockEntityTickStart((World)(Object)this);
+    }
+
+    /**
+     * Redireciona a verificação isRemoved() do laço de tickBlockEntities: um ticker de block entity ocioso
+     * é tratado como removido e o próprio laço vanilla o tira da lista. Ele fica guardado no BlockEntityTickManager
+     * e volta com World.addBlockEntityTicker quando um evento o acorda.
+     *
+     * Target Method Signature (Yarn 1.21.5): Lnet/minecraft/world/World;tickBlockEntities()V
+     */
+    @Redirect(
+        method = "tickBlockEntities()V",
+        at = @At(value = "INVOKE", target = "Lnet/minecraft/world/chunk/BlockEntityTickInvoker;isRemoved()Z")
+    )
+    private boolean barium$isRemovedOrSleeping(BlockEntityTickInvoker invoker) {
+        return invoker.isRemoved() || BlockTickOptimizer.trySleepBlockEntity((World)(Object)this, invoker);
+    }
+}
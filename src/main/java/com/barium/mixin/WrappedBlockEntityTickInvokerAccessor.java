@@ -0,0 +1,17 @@
+package com.barium.mixin;
+
+import net.minecraft.world.chunk.BlockEntityTickInvoker;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**
+ * Accessor para o ticker embrulhado por WorldChunk.WrappedBlockEntityTickInvoker (classe privada),
+ * o objeto que fica na lista de ticking do mundo.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+@Mixin(targets = "net.minecraft.world.chunk.WorldChunk$WrappedBlockEntityTickInvoker")
+public interface WrappedBlockEntityTickInvokerAccessor {
+
+    @Accessor("wrapped")
+    BlockEntityTickInvoker barium$getWrapped();
+}
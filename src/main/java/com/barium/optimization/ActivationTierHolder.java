@@ -0,0 +1,11 @@
+package com.barium.optimization;
+
+/**
+ * Entidade com o nível do passo de ativação guardado nela mesma (implementado por Entity via mixin).
+ */
+public interface ActivationTierHolder {
+
+    int barium$getActivationTier();
+
+    void barium$setActivationTier(int tier);
+}
@@ -0,0 +1,167 @@
+package com.barium.optimization;
+
+import com.barium.BariumMod;
+import com.barium.config.BariumConfig;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.ai.pathing.PathNode;
+import net.minecraft.entity.ai.pathing.PathNodeType;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Calcula rotas terrestres fora da thread do servidor.
+ * Cada pedido carrega uma cópia imutável dos bitmaps de walkability da região (PathRegionSnapshot) e roda um A* simples sobre ela
+ * em um pool de threads próprio. O resultado é entregue a um callback na thread de trabalho; quem pede
+ * é responsável por devolvê-lo à thread do mundo (PathfindingOptimizer drena os resultados no início do tick).
+ *
+ * O A* cobre apenas movimento a pé (regras de GroundMovement) e é conservador: se não encontrar rota,
+ * o pedido falha e o pathfinding vanilla é usado.
+ */
+public class AsyncPathfinder {
+
+    private static final double DIAGONAL_COST = Math.sqrt(2);
+    // Custo extra de subir um bloco (pulo)
+    private static final double STEP_UP_COST = 0.5;
+
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {-1, 0}, {0, 1}, {0, -1},
+            {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+    };
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Math.max(1, BariumConfig.ASYNC_PATHFINDING_THREADS), runnable -> {
+        Thread thread = new Thread(runnable, "Barium Pathfinder #" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    /**
+     * Agenda o cálculo de uma rota.
+     *
+     * @param snapshot A cópia da região.
+     * @param start A posição de partida (pés do mob).
+     * @param target O alvo.
+     * @param distance Distância de Manhattan do alvo considerada suficiente.
+     * @param maxVisitedNodes Limite de nós expandidos.
+     * @param callback Recebe a rota (ou null se não houver), na thread de trabalho.
+     * @return false se o pedido foi rejeitado.
+     */
+    public static boolean submit(PathRegionSnapshot snapshot, BlockPos start, BlockPos target, int distance, int maxVisitedNodes, Consumer<Path> callback) {
+        try {
+            EXECUTOR.execute(() -> {
+                Path path = null;
+                try {
+                    path = findPath(snapshot, start, target, distance, maxVisitedNodes);
+                } catch (Throwable t) {
+                    BariumMod.LOGGER.error("Erro no pathfinding assíncrono para {}", target, t);
+                }
+                callback.accept(path);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A* sobre a cópia dos bitmaps da região. Pode ser chamado em qualquer thread.
+     *
+     * @return A rota até o alvo, ou null se o alvo não foi alcançado dentro do limite de nós.
+     */
+    public static Path findPath(PathRegionSnapshot snapshot, BlockPos start, BlockPos target, int distance, int maxVisitedNodes) {
+        GroundMovement.Terrain terrain = snapshot;
+        int sx = start.getX(), sy = start.getY(), sz = start.getZ();
+        if (!terrain.canStand(sx, sy, sz)) {
+            return null;
+        }
+        int tx = target.getX(), ty = target.getY(), tz = target.getZ();
+
+        PriorityQueue<Node> open = new PriorityQueue<>();
+        Long2DoubleOpenHashMap bestCost = new Long2DoubleOpenHashMap();
+        bestCost.defaultReturnValue(Double.MAX_VALUE);
+        Long2LongOpenHashMap parents = new Long2LongOpenHashMap();
+        LongOpenHashSet closed = new LongOpenHashSet();
+
+        long startKey = BlockPos.asLong(sx, sy, sz);
+        bestCost.put(startKey, 0);
+        open.add(new Node(sx, sy, sz, 0, heuristic(sx, sy, sz, tx, ty, tz)));
+
+        int visited = 0;
+        while (!open.isEmpty() && visited < maxVisitedNodes) {
+            Node node = open.poll();
+            long key = BlockPos.asLong(node.x, node.y, node.z);
+            if (!closed.add(key)) {
+                continue;
+            }
+            visited++;
+
+            if (Math.abs(node.x - tx) + Math.abs(node.y - ty) + Math.abs(node.z - tz) <= distance) {
+                return buildPath(parents, startKey, key, target);
+            }
+
+            for (int[] direction : DIRECTIONS) {
+                int nx = node.x + direction[0];
+                int nz = node.z + direction[1];
+                boolean diagonal = direction[0] != 0 && direction[1] != 0;
+                int ny = GroundMovement.nextY(terrain, node.x, node.y, node.z, nx, nz, diagonal);
+                if (ny == GroundMovement.BLOCKED) {
+                    continue;
+                }
+                long neighborKey = BlockPos.asLong(nx, ny, nz);
+                if (closed.contains(neighborKey)) {
+                    continue;
+                }
+                double cost = node.cost + (diagonal ? DIAGONAL_COST : 1.0) + (ny > node.y ? STEP_UP_COST : 0.0);
+                if (cost < bestCost.get(neighborKey)) {
+                    bestCost.put(neighborKey, cost);
+                    parents.put(neighborKey, key);
+                    open.add(new Node(nx, ny, nz, cost, cost + heuristic(nx, ny, nz, tx, ty, tz)));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static double heuristic(int x, int y, int z, int tx, int ty, int tz) {
+        double dx = x - tx, dy = y - ty, dz = z - tz;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private static Path buildPath(Long2LongOpenHashMap parents, long startKey, long endKey, BlockPos target) {
+        List<PathNode> nodes = new ArrayList<>();
+        long key = endKey;
+        while (true) {
+            PathNode node = new PathNode(BlockPos.unpackLongX(key), BlockPos.unpackLongY(key), BlockPos.unpackLongZ(key));
+            node.type = PathNodeType.WALKABLE;
+            nodes.add(node);
+            if (key == startKey) {
+                break;
+            }
+            key = parents.get(key);
+        }
+        Collections.reverse(nodes);
+        return new Path(nodes, target, true);
+    }
+
+    // --- Nó da fronteira do A* ---
+
+    private record Node(int x, int y, int z, double cost, double estimate) implements Comparable<Node> {
+        @Override
+        public int compareTo(Node other) {
+            return Double.compare(estimate, other.estimate);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.barium.optimization;
+
+import com.barium.mixin.AbstractFurnaceBlockEntityAccessor;
+import com.barium.mixin.BrewingStandBlockEntityAccessor;
+import com.barium.mixin.DirectBlockEntityTickInvokerAccessor;
+import com.barium.mixin.WrappedBlockEntityTickInvokerAccessor;
+import com.barium.util.BlockPosMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.entity.AbstractFurnaceBlockEntity;
+import net.minecraft.block.entity.BeehiveBlockEntity;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.entity.BrewingStandBlockEntity;
+import net.minecraft.block.entity.CampfireBlockEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.BlockEntityTickInvoker;
+
+/**
+ * Gerencia a lista de ticking de block entities de um mundo com conjuntos de ativos e dormindo.
+ * A lista vanilla de World.tickBlockEntities é o conjunto ativo; um block entity ocioso (fornalha apagada sem
+ * combustível ou sem item, suporte de poções sem ingrediente, fogueira vazia, colmeia sem abelhas) sai da lista
+ * e passa para o conjunto dormindo, onde não custa nada por tick.
+ * Volta para a lista quando o inventário dele muda (markDirty/setStack), quando o bloco dele ou um vizinho muda
+ * ou, por segurança, após BLOCK_ENTITY_MAX_SLEEP_TICKS.
+ * Usado apenas na thread do mundo.
+ */
+public class BlockEntityTickManager {
+
+    // Slots de AbstractFurnaceBlockEntity e BrewingStandBlockEntity
+    private static final int FURNACE_INPUT_SLOT = 0;
+    private static final int FURNACE_FUEL_SLOT = 1;
+    private static final int BREWING_INGREDIENT_SLOT = 3;
+    private static final int BREWING_FUEL_SLOT = 4;
+
+    // Dormindo: posição -> ticker fora da lista do mundo
+    private final BlockPosMap<SleepingTicker> sleeping = new BlockPosMap<>();
+    // Despertares de segurança agendados: tick -> posições
+    private final Long2ObjectOpenHashMap<LongArrayList> wakeups = new Long2ObjectOpenHashMap<>();
+    // Contador de passagens de tickBlockEntities (não depende do tempo do mundo, que pode parar)
+    private long tick;
+
+    /**
+     * Início da passagem de tickBlockEntities: devolve à lista os tickers cujo sono de segurança acabou.
+     */
+    public void onTickStart(World world) {
+        tick++;
+        LongArrayList due = wakeups.remove(tick);
+        if (due == null) {
+            return;
+        }
+        for (int i = 0; i < due.size(); i++) {
+            long pos = due.getLong(i);
+            SleepingTicker entry = sleeping.get(pos);
+            // A entrada pode ter sido acordada e colocada para dormir de novo com outro prazo
+            if (entry != null && entry.wakeTick <= tick) {
+                sleeping.remove(pos);
+                world.addBlockEntityTicker(entry.invoker);
+            }
+        }
+    }
+
+    /**
+     * Decide se um ticker ocioso deve sair da lista do mundo. Se sim, ele passa a dormir.
+     *
+     * @param invoker O ticker (ainda na lista do mundo).
+     * @param maxSleepTicks Limite de segurança do sono.
+     * @return true se o ticker foi colocado para dormir e deve ser removido da lista.
+     */
+    public boolean trySleep(BlockEntityTickInvoker invoker, int maxSleepTicks) {
+        if (!(invoker instanceof WrappedBlockEntityTickInvokerAccessor wrapper)
+                || !(wrapper.barium$getWrapped() instanceof DirectBlockEntityTickInvokerAccessor direct)
+                || !isIdle(direct.barium$getBlockEntity())) {
+            return false;
+        }
+        long pos = invoker.getPos().asLong();
+        long wakeTick = tick + maxSleepTicks;
+        sleeping.put(pos, new SleepingTicker(invoker, wakeTick));
+        LongArrayList due = wakeups.get(wakeTick);
+        if (due == null) {
+            due = new LongArrayList();
+            wakeups.put(wakeTick, due);
+        }
+        due.add(pos);
+        return true;
+    }
+
+    /**
+     * Devolve à lista do mundo o ticker dormindo na posição, se houver.
+     */
+    public void wake(World world, long pos) {
+        SleepingTicker entry = sleeping.remove(pos);
+        if (entry != null) {
+            // Durante a passagem vai para a lista pendente do mundo e tica a partir do próximo tick
+            world.addBlockEntityTicker(entry.invoker);
+        }
+    }
+
+    /**
+     * Devolve à lista os tickers dormindo na posição e nos 6 vizinhos.
+     */
+    public void wakeAround(World world, BlockPos pos) {
+        if (sleeping.isEmpty()) {
+            return;
+        }
+        long center = pos.asLong();
+        wake(world, center);
+        for (Direction direction : Direction.values()) {
+            wake(world, BlockPos.offset(center, direction));
+        }
+    }
+
+    /**
+     * Descarta os tickers dormindo de um chunk descarregado (o chunk cria tickers novos ao ser recarregado).
+     */
+    public void onChunkUnloaded(ChunkPos pos) {
+        sleeping.removeChunk(pos);
+    }
+
+    public int getSleepingCount() {
+        return sleeping.size();
+    }
+
+    // --- Predicados de ociosidade ---
+
+    /**
+     * @return true se um tick do block entity certamente não mudaria nada.
+     */
+    private static boolean isIdle(BlockEntity blockEntity) {
+        if (blockEntity instanceof AbstractFurnaceBlockEntity furnace) {
+            // Apagada, sem progresso esfriando e sem item ou sem combustível: o tick não acende nem cozinha
+            AbstractFurnaceBlockEntityAccessor accessor = (AbstractFurnaceBlockEntityAccessor) furnace;
+            return accessor.barium$getLitTimeRemaining() <= 0
+                    && accessor.barium$getCookingTimeSpent() <= 0
+                    && (furnace.getStack(FURNACE_INPUT_SLOT).isEmpty() || furnace.getStack(FURNACE_FUEL_SLOT).isEmpty());
+        }
+        if (blockEntity instanceof BrewingStandBlockEntity brewingStand) {
+            // Sem preparo em andamento, sem ingrediente e sem combustível a consumir
+            BrewingStandBlockEntityAccessor accessor = (BrewingStandBlockEntityAccessor) brewingStand;
+            return accessor.barium$getBrewTime() <= 0
+                    && brewingStand.getStack(BREWING_INGREDIENT_SLOT).isEmpty()
+                    && (accessor.barium$getFuel() > 0 || brewingStand.getStack(BREWING_FUEL_SLOT).isEmpty());
+        }
+        if (blockEntity instanceof CampfireBlockEntity campfire) {
+            for (ItemStack stack : campfire.getItemsBeingCooked()) {
+                if (!stack.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (blockEntity instanceof BeehiveBlockEntity beehive) {
+            return beehive.hasNoBees();
+        }
+        return false;
+    }
+
+    // --- Ticker dormindo ---
+
+    private record SleepingTicker(BlockEntityTickInvoker invoker, long wakeTick) {
+    }
+}
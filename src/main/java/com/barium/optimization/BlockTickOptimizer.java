@@ -1,13 +1,24 @@
 package com.barium.optimization;
 
-import com.barium.BariumMod;
 import com.barium.config.BariumConfig;
+import com.barium.util.BlockPosLongMap;
 import net.minecraft.block.BlockState;
-import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.block.ChestBlock;
+import net.minecraft.block.entity.Hopper;
+import net.minecraft.block.enums.ChestType;
 import net.minecraft.block.entity.HopperBlockEntity;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.predicate.entity.EntityPredicates;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.BlockEntityTickInvoker;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,149 +31,323 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class BlockTickOptimizer {
 
-    // Cache para o estado de hoppers (ativo/inativo)
-    private static final Map<BlockPos, HopperState> HOPPER_STATE_CACHE = new ConcurrentHashMap<>();
-    private static final long HOPPER_CACHE_DURATION_MS = 2000; // Cache válido por 2 segundos
+    // Estado por mundo: hoppers e block entities dormindo, índice de entidades de item e inventários resolvidos
+    private static final Map<ServerWorld, WorldBlockTickState> WORLD_STATES = new ConcurrentHashMap<>();
+    private static final long NOT_SLEEPING = -1L;
+    // Altura (relativa ao hopper) do início da área de coleta de itens
+    private static final double HOPPER_INPUT_AREA_BOTTOM = 0.6875;
 
-    // Contador para ticking sob demanda
-    private static final Map<BlockPos, Integer> DEMAND_TICK_COUNTER = new ConcurrentHashMap<>();
-    private static final int DEMAND_TICK_THRESHOLD = 5; // Tick a cada 5 eventos de demanda
+    /**
+     * Início da passagem de ticking de block entities do mundo (World.tickBlockEntities).
+     * Devolve à lista os block entities cujo sono de segurança acabou.
+     *
+     * @param world O mundo.
+     */
+    public static void onBlockEntityTickStart(World world) {
+        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.USE_ON_DEMAND_TICKING
+                || !(world instanceof ServerWorld serverWorld)) {
+            return;
+        }
+        getOrCreateState(serverWorld).blockEntityTicks.onTickStart(world);
+    }
 
     /**
-     * Verifica se um BlockEntity deve ter seu tick pulado com base no sistema sob demanda.
+     * Ticking sob demanda: decide, para cada ticker da lista do mundo, se o block entity está ocioso e pode
+     * sair da lista até um evento o acordar (ver BlockEntityTickManager).
      *
-     * @param blockEntity O BlockEntity.
      * @param world O mundo.
-     * @return true se o tick deve ser pulado.
+     * @param invoker O ticker.
+     * @return true se o ticker foi colocado para dormir e deve ser removido da lista do mundo.
      */
-    public static boolean shouldSkipTickDemandBased(BlockEntity blockEntity, World world) {
-        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.USE_ON_DEMAND_TICKING) { // Corrected flag
+    public static boolean trySleepBlockEntity(World world, BlockEntityTickInvoker invoker) {
+        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.USE_ON_DEMAND_TICKING) {
             return false;
         }
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        return state != null && state.blockEntityTicks.trySleep(invoker, BariumConfig.BLOCK_ENTITY_MAX_SLEEP_TICKS);
+    }
 
-        BlockPos pos = blockEntity.getPos();
-        int demandCount = DEMAND_TICK_COUNTER.getOrDefault(pos, 0);
+    /**
+     * Otimização específica para Hoppers: verifica se o hopper está dormindo.
+     * Um hopper dorme depois de um tick em que tentou transferir e não moveu nada (nada para empurrar
+     * e nada acima para puxar) e só volta a tickar quando algo que poderia mudar isso acontece:
+     * mudança de inventário nele ou nos vizinhos, mudança de bloco ao redor ou item/inventário entrando
+     * na área acima dele. Por segurança, acorda de qualquer forma após HOPPER_MAX_SLEEP_TICKS.
+     *
+     * @param hopperEntity O HopperBlockEntity.
+     * @param world O mundo.
+     * @return true se o tick do hopper deve ser pulado.
+     */
+    public static boolean shouldSkipHopperTick(HopperBlockEntity hopperEntity, World world) {
+        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.OPTIMIZE_HOPPERS) { // Corrected flag
+            return false;
+        }
 
-        // Só executa o tick se o contador atingir o limiar
-        if (demandCount >= DEMAND_TICK_THRESHOLD) {
-            DEMAND_TICK_COUNTER.put(pos, 0); // Reseta o contador
-            return false; // Executa o tick
-        } else {
-            // Incrementa o contador apenas se houver um evento real (ex: mudança de redstone, inventário)
-            // A lógica de incremento deve ser chamada externamente quando relevante
-            return true; // Pula o tick
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        if (state == null) {
+            return false;
+        }
+        BlockPosLongMap sleeping = state.sleepingHoppers;
+        long pos = hopperEntity.getPos().asLong();
+        long wakeTick = sleeping.get(pos);
+        if (wakeTick == NOT_SLEEPING) {
+            return false;
         }
+        if (world.getTime() < wakeTick) {
+            return true;
+        }
+        // Rede de segurança: tica uma vez e volta a dormir se continuar ocioso
+        sleeping.remove(pos);
+        return false;
     }
 
     /**
-     * Registra um evento de demanda para um bloco, potencialmente ativando seu próximo tick.
+     * Chamado ao fim do tick de um hopper. Se o hopper tentou transferir e não moveu nada
+     * (o cooldown continua zerado), ele passa a dormir.
      *
-     * @param pos A posição do bloco.
+     * @param hopperEntity O HopperBlockEntity.
+     * @param world O mundo.
+     * @param transferCooldown O cooldown de transferência após o tick.
      */
-    public static void registerDemandTickEvent(BlockPos pos) {
-        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.USE_ON_DEMAND_TICKING) { // Corrected flag
+    public static void onHopperTicked(HopperBlockEntity hopperEntity, World world, int transferCooldown) {
+        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.OPTIMIZE_HOPPERS
+                || transferCooldown > 0 || !(world instanceof ServerWorld serverWorld)) {
             return;
         }
-        DEMAND_TICK_COUNTER.compute(pos, (k, v) -> (v == null) ? 1 : v + 1);
+        getOrCreateState(serverWorld).sleepingHoppers.put(hopperEntity.getPos().asLong(), world.getTime() + BariumConfig.HOPPER_MAX_SLEEP_TICKS);
     }
 
     /**
-     * Otimização específica para Hoppers: verifica se o hopper pode ser pulado.
+     * Registra a mudança de um inventário (markDirty ou setStack de um BlockEntity).
+     * Acorda o hopper na posição, o de baixo (que puxa dele) e os vizinhos que podem empurrar para ele
+     * (nas duas metades de um baú duplo), e o próprio block entity, se estiver dormindo.
      *
-     * @param hopperEntity O HopperBlockEntity.
      * @param world O mundo.
-     * @return true se o tick do hopper deve ser pulado.
+     * @param pos A posição do inventário.
      */
-    public static boolean shouldSkipHopperTick(HopperBlockEntity hopperEntity, World world) {
-        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.OPTIMIZE_HOPPERS) { // Corrected flag
-            return false;
+    public static void onInventoryChanged(World world, BlockPos pos) {
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.blockEntityTicks.wake(world, pos.asLong());
+        }
+        wakeAround(world, pos);
+        // Metade de um baú duplo: os hoppers da outra metade veem o mesmo inventário
+        BlockState blockState = world.getBlockState(pos);
+        if (blockState.getBlock() instanceof ChestBlock && blockState.get(ChestBlock.CHEST_TYPE) != ChestType.SINGLE) {
+            wakeAround(world, pos.offset(ChestBlock.getFacing(blockState)));
         }
+    }
 
-        BlockPos pos = hopperEntity.getPos();
-        HopperState cachedState = HOPPER_STATE_CACHE.get(pos);
+    /**
+     * Registra a mudança do inventário de uma entidade (setStack ou markDirty de um minecart com baú ou hopper),
+     * que não muda de bloco: acorda os hoppers que podem empurrar para ela ou puxar dela.
+     *
+     * @param entity A entidade.
+     */
+    public static void onInventoryEntityChanged(Entity entity) {
+        onInventoryEntityMoved(entity, entity.getX(), entity.getY(), entity.getZ());
+    }
 
-        // Verifica o cache
-        if (cachedState != null && cachedState.isValid()) {
-            // Se o estado em cache indica inatividade, pula o tick
-            if (!cachedState.isActive) {
-                return true;
-            }
+    /**
+     * Registra uma mudança de bloco: um hopper ligado/desligado, um container colocado ou removido
+     * ao lado, ou um bloco com inventário (ex: composteira) mudando de estado.
+     *
+     * @param world O mundo.
+     * @param pos A posição do bloco alterado.
+     */
+    public static void onBlockChanged(World world, BlockPos pos) {
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.inventories.invalidate(pos.asLong());
+            state.blockEntityTicks.wakeAround(world, pos);
+        }
+        wakeAround(world, pos);
+    }
+
+    /**
+     * Consulta o cache de inventários resolvidos (ver InventoryLookupCache).
+     *
+     * @param world O mundo.
+     * @param pos A posição consultada.
+     * @return A entrada em cache, ou null se o inventário precisa ser resolvido.
+     */
+    public static InventoryLookupCache.Entry getCachedInventory(World world, BlockPos pos) {
+        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.CACHE_INVENTORY_LOOKUPS) {
+            return null;
         }
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        return state != null ? state.inventories.get(pos.asLong()) : null;
+    }
 
-        // Verifica se o hopper está realmente ativo (tem itens para mover, espaço no destino, etc.)
-        // Esta é uma verificação simplificada. Uma implementação real seria mais detalhada.
-        boolean isActive = hopperNeedsProcessing(hopperEntity, world);
+    /**
+     * Guarda um inventário resolvido pelo vanilla (se o resultado puder ser reutilizado).
+     * A ausência de inventário só é guardada se nenhuma entidade com inventário estiver a até um bloco da posição:
+     * uma entidade assim pode passar a tocar a caixa da posição sem mudar de bloco, e só a mudança de bloco
+     * descarta as entradas (ver onInventoryEntityMoved).
+     *
+     * @param world O mundo.
+     * @param pos A posição consultada.
+     * @param inventory O inventário resolvido (ou null).
+     */
+    public static void cacheInventory(World world, BlockPos pos, Inventory inventory) {
+        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.CACHE_INVENTORY_LOOKUPS
+                || !(world instanceof ServerWorld serverWorld)) {
+            return;
+        }
+        if (inventory == null && !world.getOtherEntities(null, new Box(pos).expand(1.0), EntityPredicates.VALID_INVENTORIES).isEmpty()) {
+            return;
+        }
+        getOrCreateState(serverWorld).inventories.put(pos.asLong(), inventory);
+    }
 
-        // Atualiza o cache
-        HOPPER_STATE_CACHE.put(pos, new HopperState(isActive));
+    /**
+     * Verifica, pelo índice de entidades de item, se há algum item na área de coleta do hopper
+     * (o mesmo teste de HopperBlockEntity.getInputItemEntities, sem a busca de entidades do mundo).
+     * Um hopper que tentou transferir, não moveu nada e passou por esta verificação sem itens
+     * não tem nada acima para puxar e pode dormir.
+     *
+     * @param world O mundo.
+     * @param hopper O hopper (bloco ou minecart).
+     * @return false apenas se for certo que não há itens na área; true se há itens ou se o índice não cobre o mundo.
+     */
+    public static boolean canPickupItems(World world, Hopper hopper) {
+        if (!BariumConfig.ENABLE_BLOCK_TICK_OPTIMIZATION || !BariumConfig.USE_ITEM_ENTITY_INDEX) {
+            return true;
+        }
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        if (state == null) {
+            // Nenhum item foi carregado neste mundo ainda
+            return world.isClient();
+        }
+        Box box = hopper.getInputAreaShape().offset(hopper.getHopperX() - 0.5, hopper.getHopperY() - 0.5, hopper.getHopperZ() - 0.5);
+        return state.itemIndex.hasItemsIn(box);
+    }
 
-        // Pula o tick se estiver inativo
-        return !isActive;
+    /**
+     * Adiciona uma entidade de item carregada no mundo ao índice.
+     *
+     * @param world O mundo.
+     * @param entity A entidade.
+     */
+    public static void onItemEntityLoaded(ServerWorld world, ItemEntity entity) {
+        getOrCreateState(world).itemIndex.add(entity);
     }
 
     /**
-     * Verifica se um hopper precisa ser processado (lógica simplificada).
+     * Remove do índice uma entidade de item removida ou descarregada.
      *
-     * @param hopperEntity O HopperBlockEntity.
      * @param world O mundo.
-     * @return true se o hopper provavelmente precisa ser processado.
+     * @param entity A entidade.
      */
-    private static boolean hopperNeedsProcessing(HopperBlockEntity hopperEntity, World world) {
-        // Verifica se está desligado por redstone
-        if (!hopperEntity.getCachedState().get(net.minecraft.block.HopperBlock.ENABLED)) {
-            return false;
+    public static void onItemEntityUnloaded(ServerWorld world, ItemEntity entity) {
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.itemIndex.remove(entity);
         }
+    }
 
-        // Verifica se tem itens para transferir
-        boolean hasItemsToTransfer = false;
-        for (int i = 0; i < hopperEntity.size(); ++i) {
-            if (!hopperEntity.getStack(i).isEmpty()) {
-                hasItemsToTransfer = true;
-                break;
+    /**
+     * Registra que uma entidade de item ou com inventário (ex: minecart com baú) mudou de bloco.
+     * Atualiza o índice de entidades de item, descarta os inventários em cache das posições que uma entidade
+     * com inventário pode alcançar e acorda os hoppers cuja área de coleta (o bloco acima) a entidade pode alcançar; para inventários,
+     * também os hoppers ao lado e acima, que podem empurrar para ela.
+     *
+     * @param entity A entidade.
+     * @param x A nova posição x.
+     * @param y A nova posição y.
+     * @param z A nova posição z.
+     */
+    public static void onInventoryEntityMoved(Entity entity, double x, double y, double z) {
+        WorldBlockTickState state = WORLD_STATES.get(entity.getWorld());
+        if (state == null) {
+            return;
+        }
+        double halfWidth = entity.getWidth() / 2.0;
+        int margin = entity instanceof ItemEntity ? 0 : 1;
+        int minX = MathHelper.floor(x - halfWidth) - margin;
+        int maxX = MathHelper.floor(x + halfWidth) + margin;
+        int minZ = MathHelper.floor(z - halfWidth) - margin;
+        int maxZ = MathHelper.floor(z + halfWidth) + margin;
+        if (entity instanceof ItemEntity itemEntity) {
+            state.itemIndex.onMoved(itemEntity, x, y, z);
+        } else {
+            // Posições cuja caixa a entidade pode alcançar sem mudar de bloco: a ausência de inventário em cache deixa de valer
+            state.inventories.invalidate(minX, MathHelper.floor(y), minZ, maxX, MathHelper.floor(y + entity.getHeight()) + 1, maxZ);
+        }
+        BlockPosLongMap sleeping = state.sleepingHoppers;
+        if (sleeping.isEmpty()) {
+            return;
+        }
+        // A área de coleta vai do topo do hopper (y + 0.6875) até o fim do bloco acima (y + 2)
+        int minY = MathHelper.floor(y) - 1;
+        int maxY = MathHelper.floor(y + entity.getHeight() - HOPPER_INPUT_AREA_BOTTOM) + margin;
+        for (int bx = minX; bx <= maxX; bx++) {
+            for (int bz = minZ; bz <= maxZ; bz++) {
+                for (int by = minY; by <= maxY; by++) {
+                    sleeping.remove(BlockPos.asLong(bx, by, bz));
+                }
             }
         }
-        if (!hasItemsToTransfer && !canPickupItems(hopperEntity, world)) {
-             return false; // Não tem itens e não pode pegar
+    }
+
+    private static void wakeAround(World world, BlockPos pos) {
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        if (state == null || state.sleepingHoppers.isEmpty()) {
+            return;
+        }
+        BlockPosLongMap sleeping = state.sleepingHoppers;
+        long center = pos.asLong();
+        sleeping.remove(center);
+        for (Direction direction : Direction.values()) {
+            sleeping.remove(BlockPos.offset(center, direction));
         }
+    }
 
-        // Verifica se o inventário de destino tem espaço (simplificado)
-        // Uma verificação real envolveria obter o inventário de destino e checar espaço
-        boolean destinationHasSpace = true; // Assume que tem espaço por padrão
+    private static WorldBlockTickState getOrCreateState(ServerWorld world) {
+        return WORLD_STATES.computeIfAbsent(world, w -> new WorldBlockTickState());
+    }
 
-        return destinationHasSpace; // Precisa processar se tem itens e destino tem espaço
+    /**
+     * Descarta os hoppers e block entities dormindo e os inventários em cache de um chunk descarregado.
+     *
+     * @param world O mundo.
+     * @param pos O chunk descarregado.
+     */
+    public static void onChunkUnloaded(ServerWorld world, ChunkPos pos) {
+        WorldBlockTickState state = WORLD_STATES.get(world);
+        if (state == null) {
+            return;
+        }
+        state.inventories.onChunkUnloaded(pos);
+        state.blockEntityTicks.onChunkUnloaded(pos);
+        state.sleepingHoppers.removeChunk(pos);
     }
 
     /**
-     * Verifica se o hopper pode pegar itens de cima (lógica simplificada).
+     * Limpa o estado associado a um mundo (ex: quando o mundo é descarregado).
+     *
+     * @param world O mundo.
      */
-    private static boolean canPickupItems(HopperBlockEntity hopperEntity, World world) {
-        // Verifica se há um inventário ou entidade com itens acima
-        // Lógica simplificada
-        return true;
+    public static void clearWorldState(ServerWorld world) {
+        WORLD_STATES.remove(world);
     }
 
     /**
      * Limpa todo o estado do otimizador (ex: ao fechar o mundo).
      */
     public static void clearAllStates() {
-        HOPPER_STATE_CACHE.clear();
-        DEMAND_TICK_COUNTER.clear();
+        WORLD_STATES.clear();
     }
 
-    // --- Classe interna para o Cache de Hopper ---
-
-    private static class HopperState {
-        final boolean isActive;
-        final long timestamp;
-
-        HopperState(boolean isActive) {
-            this.isActive = isActive;
-            this.timestamp = System.currentTimeMillis();
-        }
+    // --- Estado por mundo ---
 
-        boolean isValid() {
-            return (System.currentTimeMillis() - timestamp) < HOPPER_CACHE_DURATION_MS;
-        }
+    private static class WorldBlockTickState {
+        // Hoppers dormindo: posição -> tick em que acordam de qualquer forma
+        final BlockPosLongMap sleepingHoppers = new BlockPosLongMap(NOT_SLEEPING);
+        final ItemEntitySectionIndex itemIndex = new ItemEntitySectionIndex();
+        // Inventários resolvidos por posição (destino e origem de hoppers, droppers e crafters)
+        final InventoryLookupCache inventories = new InventoryLookupCache();
+        // Block entities ociosos fora da lista de ticking do mundo
+        final BlockEntityTickManager blockEntityTicks = new BlockEntityTickManager();
     }
 }
-
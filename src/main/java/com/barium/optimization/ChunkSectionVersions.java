@@ -0,0 +1,109 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+/**
+ * Versões das seções de chunk de um mundo, para invalidar caches apenas quando os blocos mudam.
+ * Cada mudança de bloco grava na seção o próximo valor de um contador monotônico do mundo.
+ * Uma entrada de cache guarda o valor do contador no momento em que foi criada ({@link #getStamp()})
+ * e as seções das quais depende: ela continua válida enquanto nenhuma dessas seções mudar depois disso.
+ *
+ * Seções de chunks descarregados são descartadas; para não "esquecer" mudanças, seções desconhecidas
+ * respondem com a maior versão já descartada (invalidação conservadora, nunca uma entrada obsoleta).
+ * Usado apenas na thread do mundo.
+ */
+public class ChunkSectionVersions {
+
+    private final Long2LongOpenHashMap lastModified = new Long2LongOpenHashMap();
+    private long counter;
+    private long pruneFloor;
+
+    /**
+     * Registra uma mudança de bloco na seção que contém a posição.
+     */
+    public void onBlockChanged(BlockPos pos) {
+        lastModified.put(ChunkSectionPos.toLong(pos), ++counter);
+    }
+
+    /**
+     * @return O valor atual do contador, a ser guardado pelas entradas de cache criadas agora.
+     */
+    public long getStamp() {
+        return counter;
+    }
+
+    /**
+     * @return true se nenhuma das seções mudou depois do carimbo.
+     */
+    public boolean isUnchangedSince(long[] sectionKeys, long stamp) {
+        for (long sectionKey : sectionKeys) {
+            if (lastModified.getOrDefault(sectionKey, pruneFloor) > stamp) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true se a seção que contém a posição não mudou depois do carimbo.
+     */
+    public boolean isUnchangedSince(BlockPos pos, long stamp) {
+        return lastModified.getOrDefault(ChunkSectionPos.toLong(pos), pruneFloor) <= stamp;
+    }
+
+    /**
+     * @return true se nenhuma das seções tocadas pela caixa de blocos (inclusive) mudou depois do carimbo.
+     */
+    public boolean isUnchangedSince(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, long stamp) {
+        for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+            for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+                for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+                    if (lastModified.getOrDefault(ChunkSectionPos.asLong(sx, sy, sz), pruneFloor) > stamp) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Descarta as versões das seções de um chunk descarregado.
+     *
+     * @param pos O chunk.
+     * @param bottomSectionY A coordenada da seção mais baixa do mundo.
+     * @param topSectionY A coordenada da seção mais alta do mundo (exclusiva).
+     */
+    public void onChunkUnloaded(ChunkPos pos, int bottomSectionY, int topSectionY) {
+        if (lastModified.isEmpty()) {
+            return;
+        }
+        for (int sectionY = bottomSectionY; sectionY < topSectionY; sectionY++) {
+            long key = ChunkSectionPos.asLong(pos.x, sectionY, pos.z);
+            if (lastModified.containsKey(key)) {
+                pruneFloor = Math.max(pruneFloor, lastModified.remove(key));
+            }
+        }
+    }
+
+    /**
+     * Adiciona ao conjunto as seções tocadas pela caixa (no máximo 2 por eixo se a caixa for menor que uma seção).
+     */
+    public static void addSections(LongOpenHashSet sections, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        for (int sx = minX >> 4; sx <= maxX >> 4; sx++) {
+            for (int sy = minY >> 4; sy <= maxY >> 4; sy++) {
+                for (int sz = minZ >> 4; sz <= maxZ >> 4; sz++) {
+                    sections.add(ChunkSectionPos.asLong(sx, sy, sz));
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return lastModified.size();
+    }
+}
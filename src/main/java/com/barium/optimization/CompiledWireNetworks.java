@@ -0,0 +1,178 @@
+package com.barium.optimization;
+
+import com.barium.util.BlockPosKeys;
+import com.barium.util.BlockPosMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.RedstoneWireBlock;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Redes de fios compiladas de um mundo. Uma rede que é redescoberta a partir do mesmo fio várias vezes
+ * (relógios, linhas ligadas a observadores ou portas de pistão) é considerada estável e tem sua topologia
+ * gravada de forma compacta: as posições dos fios e, para cada fio, os fios que leem a potência dele.
+ * As próximas atualizações da rede reaproveitam a topologia e só leem as potências externas, sem as
+ * 12 consultas de bloco e testes de solidez por fio da descoberta.
+ *
+ * A rede compilada é descartada assim que qualquer bloco da sua área (os fios, o bloco acima de cada fio
+ * e, em cada direção horizontal, o lado, acima do lado e abaixo do lado) muda, exceto a troca de potência
+ * de um fio compilado, que não muda a topologia. Usado apenas na thread do mundo.
+ */
+public class CompiledWireNetworks {
+
+    // Descobertas a partir do mesmo fio antes de compilar a rede
+    private static final int COMPILE_AFTER = 3;
+    // Limites (esvaziados ao atingir)
+    private static final int MAX_CANDIDATES = 4096;
+    private static final int MAX_FOOTPRINT = 1 << 16;
+
+    private final BlockPosMap<CompiledWireNetwork> byWire = new BlockPosMap<>();
+    private final BlockPosMap<ObjectArrayList<CompiledWireNetwork>> byFootprint = new BlockPosMap<>();
+    // Fio de partida -> descobertas da rede a partir dele
+    private final Long2IntOpenHashMap discoveries = new Long2IntOpenHashMap();
+
+    /**
+     * @return A rede compilada que contém o fio, ou null.
+     */
+    @Nullable
+    public CompiledWireNetwork get(long wirePos) {
+        return byWire.get(wirePos);
+    }
+
+    /**
+     * Registra uma descoberta de rede a partir do fio.
+     *
+     * @return true se a rede já foi descoberta vezes suficientes a partir deste fio para ser compilada.
+     */
+    public boolean onDiscovered(long start) {
+        if (discoveries.size() >= MAX_CANDIDATES) {
+            discoveries.clear();
+        }
+        return discoveries.addTo(start, 1) + 1 >= COMPILE_AFTER;
+    }
+
+    /**
+     * Guarda uma rede compilada.
+     */
+    public void add(CompiledWireNetwork network) {
+        if (byFootprint.size() + network.footprint.length > MAX_FOOTPRINT) {
+            clear();
+        }
+        for (long pos : network.positions) {
+            CompiledWireNetwork previous = byWire.put(pos, network);
+            if (previous != null && previous != network) {
+                invalidate(previous);
+                byWire.put(pos, network);
+            }
+            discoveries.remove(pos);
+        }
+        for (long pos : network.footprint) {
+            ObjectArrayList<CompiledWireNetwork> networks = byFootprint.get(pos);
+            if (networks == null) {
+                networks = new ObjectArrayList<>(1);
+                byFootprint.put(pos, networks);
+            }
+            networks.add(network);
+        }
+    }
+
+    /**
+     * Descarta as redes cuja área contém a posição alterada.
+     *
+     * @param pos A posição alterada.
+     * @param state O novo estado.
+     */
+    public void onBlockChanged(BlockPos pos, BlockState state) {
+        if (byFootprint.isEmpty()) {
+            return;
+        }
+        long key = pos.asLong();
+        ObjectArrayList<CompiledWireNetwork> networks = byFootprint.get(key);
+        if (networks == null) {
+            return;
+        }
+        if (state.getBlock() instanceof RedstoneWireBlock && byWire.containsKey(key)) {
+            // Só a potência ou as conexões visuais do fio mudaram
+            return;
+        }
+        for (CompiledWireNetwork network : networks.toArray(new CompiledWireNetwork[0])) {
+            invalidate(network);
+        }
+    }
+
+    /**
+     * Descarta uma rede compilada.
+     */
+    public void invalidate(CompiledWireNetwork network) {
+        for (long pos : network.positions) {
+            if (byWire.get(pos) == network) {
+                byWire.remove(pos);
+            }
+        }
+        for (long pos : network.footprint) {
+            ObjectArrayList<CompiledWireNetwork> networks = byFootprint.get(pos);
+            if (networks != null && networks.remove(network) && networks.isEmpty()) {
+                byFootprint.remove(pos);
+            }
+        }
+    }
+
+    /**
+     * Descarta as redes com alguma parte da área em um chunk descarregado.
+     */
+    public void onChunkUnloaded(ChunkPos pos) {
+        if (byFootprint.isEmpty()) {
+            return;
+        }
+        ReferenceOpenHashSet<CompiledWireNetwork> unloaded = new ReferenceOpenHashSet<>();
+        for (LongIterator iterator = byFootprint.keySet().iterator(); iterator.hasNext(); ) {
+            long key = iterator.nextLong();
+            if (BlockPosKeys.isInChunk(key, pos)) {
+                unloaded.addAll(byFootprint.get(key));
+            }
+        }
+        for (CompiledWireNetwork network : unloaded) {
+            invalidate(network);
+        }
+    }
+
+    public int size() {
+        return byWire.size();
+    }
+
+    private void clear() {
+        byWire.clear();
+        byFootprint.clear();
+        discoveries.clear();
+    }
+
+    // --- Rede compilada ---
+
+    /**
+     * Topologia compacta de uma rede de fios.
+     * Os fios que leem a potência do fio i são readers[readerStart[i] .. readerStart[i + 1]).
+     */
+    public static class CompiledWireNetwork {
+        final long[] positions;
+        final int[] readerStart;
+        final int[] readers;
+        // Posições cuja mudança pode alterar a topologia
+        final long[] footprint;
+
+        CompiledWireNetwork(long[] positions, int[] readerStart, int[] readers, long[] footprint) {
+            this.positions = positions;
+            this.readerStart = readerStart;
+            this.readers = readers;
+            this.footprint = footprint;
+        }
+
+        public int size() {
+            return positions.length;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.barium.optimization;
+
+import com.barium.config.BariumConfig;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.world.ServerWorld;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Passo de ativação executado uma vez por tick do mundo, antes das entidades tickarem.
+ * Classifica todas as entidades em níveis (ativo / reduzido / congelado) e guarda o nível
+ * em um campo int da própria entidade (ActivationTierHolder), de forma que o caminho quente
+ * (o tick de cada entidade) se resume à leitura de um campo. Não há estrutura indexada por id,
+ * que cresceria sem limite com os ids sempre crescentes de um servidor rodando há muito tempo.
+ * Com muitas entidades, a classificação é dividida entre núcleos com fork-join.
+ */
+public class EntityActivationPass {
+
+    // Valor devolvido quando a entidade não foi classificada neste tick (ex: nasceu depois do passo)
+    public static final int UNCLASSIFIED = -1;
+
+    // Cada entidade guarda (carimbo do passo << 2) | nível, evitando limpar os níveis a cada tick
+    private static final int TIER_BITS = 2;
+    private static final int TIER_MASK = (1 << TIER_BITS) - 1;
+    private static final int STAMP_MASK = -1 >>> TIER_BITS;
+
+    // Quantidade mínima de entidades por tarefa do fork-join
+    private static final int MIN_ENTITIES_PER_TASK = 512;
+
+    private int stamp;
+
+    // Buffer reaproveitado entre ticks com as entidades do mundo
+    private final List<Entity> entities = new ArrayList<>();
+
+    /**
+     * Executa o passo de classificação para todas as entidades do mundo.
+     *
+     * @param world O mundo do servidor.
+     * @param classifier Função que devolve o nível de uma entidade. Pode ser chamada em paralelo.
+     */
+    public void run(ServerWorld world, ToIntFunction<Entity> classifier) {
+        // O carimbo 0 nunca é usado, então o campo de uma entidade nova (zerado) não conta como classificado
+        stamp = (stamp + 1) & STAMP_MASK;
+        if (stamp == 0) {
+            stamp = 1;
+        }
+
+        entities.clear();
+        for (Entity entity : world.iterateEntities()) {
+            entities.add(entity);
+        }
+
+        int count = entities.size();
+        if (BariumConfig.PARALLEL_ENTITY_ACTIVATION && count >= BariumConfig.ENTITY_ACTIVATION_PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new ClassifyTask(classifier, 0, count));
+        } else {
+            classifyRange(classifier, 0, count);
+        }
+
+        // Não mantém referências às entidades entre ticks
+        entities.clear();
+    }
+
+    /**
+     * Retorna o nível calculado para a entidade no passo deste tick.
+     *
+     * @param entity A entidade.
+     * @return O nível, ou {@link #UNCLASSIFIED} se a entidade não foi classificada neste tick.
+     */
+    public int getTier(Entity entity) {
+        int value = ((ActivationTierHolder) entity).barium$getActivationTier();
+        return (value >>> TIER_BITS) == stamp ? value & TIER_MASK : UNCLASSIFIED;
+    }
+
+    private void classifyRange(ToIntFunction<Entity> classifier, int from, int to) {
+        int stampBits = stamp << TIER_BITS;
+        for (int i = from; i < to; i++) {
+            Entity entity = entities.get(i);
+            // Cada entidade é escrita por uma única tarefa; invoke() publica as escritas para a thread do mundo
+            ((ActivationTierHolder) entity).barium$setActivationTier(stampBits | (classifier.applyAsInt(entity) & TIER_MASK));
+        }
+    }
+
+    // --- Tarefa fork-join que divide a lista de entidades ao meio até um tamanho mínimo ---
+
+    private class ClassifyTask extends RecursiveAction {
+        private final ToIntFunction<Entity> classifier;
+        private final int from;
+        private final int to;
+
+        ClassifyTask(ToIntFunction<Entity> classifier, int from, int to) {
+            this.classifier = classifier;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_ENTITIES_PER_TASK) {
+                classifyRange(classifier, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ClassifyTask(classifier, from, middle), new ClassifyTask(classifier, middle, to));
+        }
+    }
+}
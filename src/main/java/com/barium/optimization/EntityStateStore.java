@@ -0,0 +1,218 @@
+package com.barium.optimization;
+
+import java.util.Arrays;
+
+/**
+ * Armazenamento primitivo do estado por entidade do EntityTickOptimizer, indexado pelo id da entidade.
+ * Uma tabela de endereçamento aberto (sondagem linear) mapeia id -> slot, e cada campo do estado
+ * fica em um array primitivo indexado pelo slot. Slots liberados voltam para uma free-list e têm
+ * sua geração incrementada, invalidando handles antigos.
+ * Nenhuma alocação por entidade: o estado deixa de aparecer nos perfis de alocação.
+ *
+ * Não é thread-safe para escrita; leituras concorrentes são seguras enquanto não há escritas
+ * (ex: durante o passo de ativação em paralelo).
+ */
+public class EntityStateStore {
+
+    // Handle devolvido quando a entidade não tem estado
+    public static final long NO_HANDLE = -1L;
+
+    // Ids de entidade são sempre >= 0
+    private static final int EMPTY_KEY = -1;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // --- Tabela id -> slot ---
+    private int[] keys;
+    private int[] keySlots;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    // --- Colunas por slot ---
+    private int[] generations;
+    private int[] skippedTicks;
+    private long[] wakeUntilTick;
+
+    // --- Free-list de slots ---
+    private int[] freeSlots;
+    private int freeCount;
+    private int usedSlots;
+
+    public EntityStateStore() {
+        allocateTable(INITIAL_CAPACITY);
+        generations = new int[INITIAL_CAPACITY];
+        skippedTicks = new int[INITIAL_CAPACITY];
+        wakeUntilTick = new long[INITIAL_CAPACITY];
+        freeSlots = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Retorna o handle do estado da entidade, criando-o se necessário.
+     *
+     * @param entityId O id da entidade.
+     * @return O handle (geração << 32 | slot).
+     */
+    public long acquire(int entityId) {
+        int index = findIndex(entityId);
+        if (keys[index] == entityId) {
+            return handleOf(keySlots[index]);
+        }
+
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : newSlot();
+        skippedTicks[slot] = 0;
+        wakeUntilTick[slot] = 0;
+
+        keys[index] = entityId;
+        keySlots[index] = slot;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+        return handleOf(slot);
+    }
+
+    /**
+     * @return O handle do estado da entidade, ou {@link #NO_HANDLE} se ela não tiver estado.
+     */
+    public long lookup(int entityId) {
+        int index = findIndex(entityId);
+        return keys[index] == entityId ? handleOf(keySlots[index]) : NO_HANDLE;
+    }
+
+    /**
+     * Remove o estado da entidade. O slot volta para a free-list e os handles antigos deixam de ser válidos.
+     *
+     * @param entityId O id da entidade.
+     */
+    public void release(int entityId) {
+        int index = findIndex(entityId);
+        if (keys[index] != entityId) {
+            return;
+        }
+        int slot = keySlots[index];
+        generations[slot]++;
+        freeSlots[freeCount++] = slot;
+        removeAt(index);
+    }
+
+    /**
+     * @return true se o handle ainda se refere ao mesmo estado (o slot não foi liberado desde então).
+     */
+    public boolean isValid(long handle) {
+        if (handle == NO_HANDLE) {
+            return false;
+        }
+        int slot = (int) handle;
+        return slot < usedSlots && generations[slot] == (int) (handle >>> 32);
+    }
+
+    public int getSkippedTicks(long handle) {
+        return isValid(handle) ? skippedTicks[(int) handle] : 0;
+    }
+
+    public void setSkippedTicks(long handle, int value) {
+        if (isValid(handle)) {
+            skippedTicks[(int) handle] = value;
+        }
+    }
+
+    public long getWakeUntilTick(long handle) {
+        return isValid(handle) ? wakeUntilTick[(int) handle] : 0;
+    }
+
+    public void setWakeUntilTick(long handle, long value) {
+        if (isValid(handle)) {
+            wakeUntilTick[(int) handle] = value;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove todo o estado. Os handles existentes deixam de ser válidos.
+     */
+    public void clear() {
+        for (int slot = 0; slot < usedSlots; slot++) {
+            generations[slot]++;
+        }
+        freeCount = 0;
+        for (int slot = usedSlots - 1; slot >= 0; slot--) {
+            freeSlots[freeCount++] = slot;
+        }
+        Arrays.fill(keys, EMPTY_KEY);
+        size = 0;
+    }
+
+    // --- Implementação da tabela ---
+
+    private long handleOf(int slot) {
+        return ((long) generations[slot] << 32) | slot;
+    }
+
+    private int newSlot() {
+        if (usedSlots == generations.length) {
+            int capacity = generations.length << 1;
+            generations = Arrays.copyOf(generations, capacity);
+            skippedTicks = Arrays.copyOf(skippedTicks, capacity);
+            wakeUntilTick = Arrays.copyOf(wakeUntilTick, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return usedSlots++;
+    }
+
+    // Índice da chave na tabela, ou do primeiro espaço vazio onde ela seria inserida
+    private int findIndex(int entityId) {
+        int index = mix(entityId) & mask;
+        while (keys[index] != EMPTY_KEY && keys[index] != entityId) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    // Remoção com deslocamento para trás (mantém as sequências de sondagem sem lápides)
+    private void removeAt(int index) {
+        int gap = index;
+        int current = (index + 1) & mask;
+        while (keys[current] != EMPTY_KEY) {
+            int ideal = mix(keys[current]) & mask;
+            // Move a entrada para o buraco se o buraco estiver entre a posição ideal e a atual
+            if (((current - ideal) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = keys[current];
+                keySlots[gap] = keySlots[current];
+                gap = current;
+            }
+            current = (current + 1) & mask;
+        }
+        keys[gap] = EMPTY_KEY;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldSlots = keySlots;
+        allocateTable(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                int index = findIndex(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                keySlots[index] = oldSlots[i];
+            }
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        keys = new int[capacity];
+        keySlots = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Ids são sequenciais; espalha os bits para evitar agrupamento na sondagem linear
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
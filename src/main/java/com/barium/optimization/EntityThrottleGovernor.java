@@ -0,0 +1,142 @@
+package com.barium.optimization;
+
+import com.barium.BariumMod;
+import com.barium.config.BariumConfig;
+import net.minecraft.server.world.ServerWorld;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Governador que ajusta automaticamente o throttling de entidades para manter um MSPT alvo.
+ * Mede o tempo de tick de cada ServerWorld (do início ao fim de ServerWorld.tick), soma os mundos
+ * de um mesmo tick do servidor e mantém uma média móvel. Periodicamente sobe ou desce um nível de
+ * pressão: cada nível encolhe as distâncias de throttling e alonga os intervalos.
+ * A histerese (faixa morta em torno do alvo + avaliações consecutivas) evita oscilação.
+ */
+public class EntityThrottleGovernor {
+
+    // Peso de cada tick do servidor na média móvel exponencial do MSPT
+    private static final double SMOOTHING = 0.1;
+    // Redução de distância por nível de pressão (nível 4 => 40% da distância original)
+    private static final double DISTANCE_STEP = 0.15;
+    // Aumento de intervalo por nível de pressão (nível 4 => 3x o intervalo original)
+    private static final double INTERVAL_STEP = 0.5;
+    // Avaliações consecutivas fora da faixa necessárias para mudar de nível
+    private static final int REQUIRED_CONSECUTIVE_EVALUATIONS = 3;
+
+    private static final Map<ServerWorld, Long> WORLD_TICK_START = new IdentityHashMap<>();
+
+    private static int currentServerTick = Integer.MIN_VALUE;
+    private static long currentServerTickNanos;
+    private static double averageMspt;
+    private static int ticksSinceEvaluation;
+    private static int consecutiveHigh;
+    private static int consecutiveLow;
+
+    // Lidos pelo passo de ativação (possivelmente em paralelo)
+    private static volatile int pressureLevel;
+    private static volatile double distanceScale = 1.0;
+    private static volatile double intervalScale = 1.0;
+
+    /**
+     * Marca o início do tick de um mundo.
+     */
+    public static synchronized void onWorldTickStart(ServerWorld world) {
+        if (!BariumConfig.ENABLE_ADAPTIVE_ENTITY_THROTTLING) {
+            return;
+        }
+        WORLD_TICK_START.put(world, System.nanoTime());
+    }
+
+    /**
+     * Marca o fim do tick de um mundo e acumula o tempo no tick atual do servidor.
+     * Quando o servidor passa para o próximo tick, o total anterior alimenta a média.
+     */
+    public static synchronized void onWorldTickEnd(ServerWorld world) {
+        if (!BariumConfig.ENABLE_ADAPTIVE_ENTITY_THROTTLING) {
+            return;
+        }
+        Long start = WORLD_TICK_START.remove(world);
+        if (start == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int serverTick = world.getServer().getTicks();
+        if (serverTick != currentServerTick) {
+            if (currentServerTick != Integer.MIN_VALUE) {
+                recordServerTick(currentServerTickNanos / 1_000_000.0);
+            }
+            currentServerTick = serverTick;
+            currentServerTickNanos = 0;
+        }
+        currentServerTickNanos += elapsed;
+    }
+
+    private static void recordServerTick(double mspt) {
+        averageMspt = averageMspt == 0 ? mspt : averageMspt + SMOOTHING * (mspt - averageMspt);
+
+        if (++ticksSinceEvaluation < BariumConfig.GOVERNOR_EVALUATION_INTERVAL_TICKS) {
+            return;
+        }
+        ticksSinceEvaluation = 0;
+
+        if (averageMspt > BariumConfig.TARGET_MSPT + BariumConfig.MSPT_HYSTERESIS) {
+            consecutiveLow = 0;
+            if (++consecutiveHigh >= REQUIRED_CONSECUTIVE_EVALUATIONS && pressureLevel < BariumConfig.MAX_THROTTLE_LEVEL) {
+                consecutiveHigh = 0;
+                setPressureLevel(pressureLevel + 1);
+            }
+        } else if (averageMspt < BariumConfig.TARGET_MSPT - BariumConfig.MSPT_HYSTERESIS) {
+            consecutiveHigh = 0;
+            if (++consecutiveLow >= REQUIRED_CONSECUTIVE_EVALUATIONS && pressureLevel > 0) {
+                consecutiveLow = 0;
+                setPressureLevel(pressureLevel - 1);
+            }
+        } else {
+            // Dentro da faixa morta: mantém o nível atual
+            consecutiveHigh = 0;
+            consecutiveLow = 0;
+        }
+    }
+
+    private static void setPressureLevel(int level) {
+        BariumMod.LOGGER.debug("Governador de entidades: MSPT médio {} ms, nível de pressão {} -> {}",
+                String.format("%.1f", averageMspt), pressureLevel, level);
+        pressureLevel = level;
+        // Nunca aumenta as distâncias além das configuradas (o índice de jogadores depende disso)
+        distanceScale = Math.max(0.1, 1.0 - level * DISTANCE_STEP);
+        intervalScale = 1.0 + level * INTERVAL_STEP;
+    }
+
+    /**
+     * @return O fator (<= 1) aplicado às distâncias quadradas dos perfis.
+     */
+    public static double getDistanceSqScale() {
+        double scale = distanceScale;
+        return scale * scale;
+    }
+
+    /**
+     * Ajusta um intervalo de tick de acordo com o nível de pressão atual.
+     */
+    public static int scaleInterval(int interval) {
+        return (int) Math.round(interval * intervalScale);
+    }
+
+    public static int getPressureLevel() {
+        return pressureLevel;
+    }
+
+    public static double getAverageMspt() {
+        return averageMspt;
+    }
+
+    /**
+     * Limpa o estado associado a um mundo (ex: quando o mundo é descarregado).
+     */
+    public static synchronized void clearWorldState(ServerWorld world) {
+        WORLD_TICK_START.remove(world);
+    }
+}
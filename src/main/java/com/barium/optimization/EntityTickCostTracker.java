@@ -0,0 +1,108 @@
+package com.barium.optimization;
+
+import com.barium.BariumMod;
+import com.barium.config.BariumConfig;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estima o custo de CPU do tick de cada tipo de entidade por amostragem.
+ * Uma fração dos ticks (1 a cada ENTITY_COST_SAMPLE_INTERVAL, distribuída pelo id) é cronometrada
+ * em ServerWorld.tickEntity, incluindo os passageiros. Os resultados servem para ajustar os
+ * perfis de EntityTickProfile com dados reais.
+ * Usado apenas na thread do servidor.
+ */
+public class EntityTickCostTracker {
+
+    // Peso de cada nova amostra na média móvel exponencial
+    private static final double SMOOTHING = 0.05;
+
+    private static final Map<EntityType<?>, CostStats> STATS = new IdentityHashMap<>();
+
+    // Amostra em andamento (o tick de entidades não é reentrante)
+    private static Entity sampledEntity;
+    private static long sampleStartNanos;
+
+    /**
+     * Inicia a cronometragem do tick da entidade, se ela foi sorteada para amostragem neste tick.
+     *
+     * @param entity A entidade que vai tickar.
+     * @param time O tempo atual do mundo.
+     */
+    public static void beginSample(Entity entity, long time) {
+        if (!BariumConfig.PROFILE_ENTITY_TICK_COST || (time + entity.getId()) % BariumConfig.ENTITY_COST_SAMPLE_INTERVAL != 0) {
+            return;
+        }
+        sampledEntity = entity;
+        sampleStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Encerra a cronometragem iniciada por {@link #beginSample} para a mesma entidade.
+     *
+     * @param entity A entidade que acabou de tickar.
+     */
+    public static void endSample(Entity entity) {
+        if (sampledEntity != entity) {
+            return;
+        }
+        long elapsed = System.nanoTime() - sampleStartNanos;
+        sampledEntity = null;
+        STATS.computeIfAbsent(entity.getType(), type -> new CostStats()).record(elapsed);
+    }
+
+    /**
+     * @return O custo médio estimado de um tick do tipo, em nanossegundos (0 se ainda não houver amostras).
+     */
+    public static double getAverageTickNanos(EntityType<?> type) {
+        CostStats stats = STATS.get(type);
+        return stats == null ? 0 : stats.averageNanos;
+    }
+
+    /**
+     * Registra no log os tipos de entidade mais caros e seus perfis atuais.
+     *
+     * @param limit Quantidade máxima de tipos listados.
+     */
+    public static void logReport(int limit) {
+        if (STATS.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<EntityType<?>, CostStats>> entries = new ArrayList<>(STATS.entrySet());
+        entries.sort((a, b) -> Double.compare(b.getValue().averageNanos, a.getValue().averageNanos));
+
+        BariumMod.LOGGER.info("Custo estimado de tick por tipo de entidade (top {}):", Math.min(limit, entries.size()));
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            EntityType<?> type = entries.get(i).getKey();
+            CostStats stats = entries.get(i).getValue();
+            BariumMod.LOGGER.info("  {}: {} us/tick ({} amostras) [{}]",
+                    EntityType.getId(type), String.format("%.2f", stats.averageNanos / 1000.0), stats.samples,
+                    EntityTickProfile.forType(type));
+        }
+    }
+
+    /**
+     * Limpa as estatísticas coletadas.
+     */
+    public static void clear() {
+        STATS.clear();
+        sampledEntity = null;
+    }
+
+    // --- Classe interna para as Estatísticas de Custo ---
+
+    private static class CostStats {
+        double averageNanos;
+        long samples;
+
+        void record(long nanos) {
+            averageNanos = samples == 0 ? nanos : averageNanos + SMOOTHING * (nanos - averageNanos);
+            samples++;
+        }
+    }
+}
@@ -2,10 +2,15 @@ package com.barium.optimization;
 
 import com.barium.BariumMod;
 import com.barium.config.BariumConfig;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
@@ -20,17 +25,84 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class EntityTickOptimizer {
 
-    // Distância quadrada para considerar uma entidade "distante"
-    private static final double FAR_ENTITY_DISTANCE_SQ = BariumConfig.ENTITY_REDUCED_TICK_DISTANCE * BariumConfig.ENTITY_REDUCED_TICK_DISTANCE; // Use config
-    // Distância quadrada para congelar completamente entidades (exceto jogadores)
-    private static final double FREEZE_ENTITY_DISTANCE_SQ = BariumConfig.ENTITY_FREEZE_DISTANCE * BariumConfig.ENTITY_FREEZE_DISTANCE; // Use config
+    // Níveis de ativação calculados pelo passo de ativação
+    public static final int TIER_ACTIVE = 0;
+    public static final int TIER_REDUCED = 1;
+    public static final int TIER_FROZEN = 2;
 
-    // Frequência de tick para entidades distantes (1 tick a cada N ticks)
-    private static final int FAR_ENTITY_TICK_INTERVAL = 10; // Tick a cada 0.5 segundos (Pode ser configurável)
-    private static final int FROZEN_ENTITY_TICK_INTERVAL = 100; // Tick a cada 5 segundos para entidades congeladas
+    // As distâncias e intervalos de cada nível vêm do perfil do tipo da entidade (EntityTickProfile)
 
-    // Cache para o estado de tick das entidades
-    private static final Map<Entity, TickState> ENTITY_TICK_STATE = new ConcurrentHashMap<>();
+    // Intervalo (em ticks) para descartar despertares de seções já expirados
+    private static final int WAKE_SECTION_PRUNE_INTERVAL = 100;
+
+    // Lado das células do índice de jogadores: precisa cobrir a maior distância consultada
+    private static final int PLAYER_INDEX_CELL_SIZE = EntityTickProfile.getMaxDistance();
+
+    // Intervalo (em ticks) entre relatórios de custo de tick por tipo de entidade
+    private static final int COST_REPORT_INTERVAL = 6000;
+
+    // Estado por mundo (índice de jogadores, níveis de ativação e estado das entidades), atualizado no início de cada tick
+    private static final Map<ServerWorld, WorldTickState> WORLD_STATES = new ConcurrentHashMap<>();
+
+    /**
+     * Chamado no início de ServerWorld.tick: reconstrói o índice de jogadores do mundo
+     * e executa o passo de ativação, antes de qualquer entidade tickar.
+     *
+     * @param world O mundo do servidor.
+     */
+    public static void onWorldTickStart(ServerWorld world) {
+        if (!BariumConfig.ENABLE_ENTITY_TICK_OPTIMIZATION) {
+            return;
+        }
+        WorldTickState state = getOrCreateState(world);
+        state.playerIndex.rebuild(world.getPlayers());
+
+        long time = world.getTime();
+        if (time % WAKE_SECTION_PRUNE_INTERVAL == 0) {
+            state.pruneWakeSections(time);
+        }
+
+        if (BariumConfig.USE_ENTITY_ACTIVATION_PASS) {
+            state.activationPass.run(world, entity -> classifyEntity(entity, state, time));
+        }
+
+        if (BariumConfig.LOG_ENTITY_TICK_COSTS && world.getRegistryKey() == World.OVERWORLD && time % COST_REPORT_INTERVAL == 0) {
+            EntityTickCostTracker.logReport(10);
+        }
+    }
+
+    /**
+     * Acorda uma entidade: ela volta ao nível ativo pelo período de graça configurado.
+     * Chamado por interações que uma entidade congelada não pode ignorar
+     * (dano, explosões, pistões, projéteis).
+     *
+     * @param entity A entidade.
+     */
+    public static void wakeEntity(Entity entity) {
+        World world = entity.getWorld();
+        if (world == null || world.isClient() || !BariumConfig.ENABLE_ENTITY_TICK_OPTIMIZATION || !BariumConfig.ENABLE_ENTITY_WAKE_UP) {
+            return;
+        }
+        EntityStateStore store = getOrCreateState((ServerWorld) world).entityStates;
+        store.setWakeUntilTick(store.acquire(entity.getId()), world.getTime() + BariumConfig.ENTITY_WAKE_UP_TICKS);
+    }
+
+    /**
+     * Registra uma mudança de bloco: as entidades da mesma seção de chunk voltam ao nível ativo
+     * pelo período de graça configurado.
+     *
+     * @param world O mundo.
+     * @param pos A posição do bloco alterado.
+     */
+    public static void onBlockChanged(World world, BlockPos pos) {
+        if (world.isClient() || !BariumConfig.ENABLE_ENTITY_TICK_OPTIMIZATION || !BariumConfig.ENABLE_ENTITY_WAKE_UP) {
+            return;
+        }
+        WorldTickState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.wakeSections.put(ChunkSectionPos.toLong(pos), world.getTime() + BariumConfig.ENTITY_WAKE_UP_TICKS);
+        }
+    }
 
     /**
      * Verifica se o tick de uma entidade deve ser pulado com base na distância.
@@ -42,26 +114,41 @@ public class EntityTickOptimizer {
     public static boolean shouldSkipEntityTick(Entity entity, World world) {
         // Esta otimização só faz sentido no lado do servidor
         if (!world.isClient() && BariumConfig.ENABLE_ENTITY_TICK_OPTIMIZATION && !(entity instanceof PlayerEntity)) {
-            // Obtém o estado de tick da entidade
-            // TickState state = ENTITY_TICK_STATE.computeIfAbsent(entity, k -> new TickState()); // Estado não usado atualmente
-
-            // Verifica se a entidade está muito longe para ser congelada
-            if (BariumConfig.FREEZE_FAR_ENTITIES && isEntityTooFarFromServer(entity, (ServerWorld) world, FREEZE_ENTITY_DISTANCE_SQ)) {
-                // Congela a entidade (pula a maioria dos ticks)
-                if ((world.getTime() + entity.getId()) % FROZEN_ENTITY_TICK_INTERVAL != 0) {
-                    // BariumMod.LOGGER.debug("Freezing entity {}", entity.getId());
-                    return true; // Pula o tick
-                }
+            int tier = getTier(entity, (ServerWorld) world);
+            EntityTickProfile profile = EntityTickProfile.forType(entity.getType());
+
+            boolean skip = false;
+            // Congela a entidade (pula a maioria dos ticks)
+            if (tier == TIER_FROZEN && (world.getTime() + entity.getId()) % EntityThrottleGovernor.scaleInterval(profile.getFrozenTickInterval()) != 0) {
+                // BariumMod.LOGGER.debug("Freezing entity {}", entity.getId());
+                skip = true;
             }
 
-            // Verifica se a entidade está distante para reduzir a frequência de tick
-            if (BariumConfig.REDUCE_FAR_ENTITY_TICKS && isEntityTooFarFromServer(entity, (ServerWorld) world, FAR_ENTITY_DISTANCE_SQ)) {
-                // Reduz a frequência de tick
-                if ((world.getTime() + entity.getId()) % FAR_ENTITY_TICK_INTERVAL != 0) {
-                    // BariumMod.LOGGER.debug("Skipping tick for far entity {}", entity.getId());
-                    return true; // Pula o tick
+            // Reduz a frequência de tick
+            if (tier == TIER_REDUCED && (world.getTime() + entity.getId()) % EntityThrottleGovernor.scaleInterval(profile.getReducedTickInterval()) != 0) {
+                // BariumMod.LOGGER.debug("Skipping tick for far entity {}", entity.getId());
+                skip = true;
+            }
+
+            if (BariumConfig.COMPENSATE_SKIPPED_TICKS) {
+                EntityStateStore store = getOrCreateState((ServerWorld) world).entityStates;
+                if (skip) {
+                    // Registra o tick pulado para compensá-lo quando a entidade voltar a tickar
+                    long handle = store.acquire(entity.getId());
+                    store.setSkippedTicks(handle, store.getSkippedTicks(handle) + 1);
+                } else {
+                    long handle = store.lookup(entity.getId());
+                    int skippedTicks = store.getSkippedTicks(handle);
+                    if (skippedTicks > 0) {
+                        SkippedTickCompensator.applySkippedTicks(entity, skippedTicks);
+                        store.setSkippedTicks(handle, 0);
+                    }
                 }
             }
+
+            if (skip) {
+                return true; // Pula o tick
+            }
         }
 
         // Entidade próxima, jogador, otimização desligada ou tick permitido, executa normalmente
@@ -69,26 +156,91 @@ public class EntityTickOptimizer {
     }
 
     /**
-     * Verifica se uma entidade está além de uma certa distância quadrada de qualquer jogador no servidor.
+     * Obtém o nível de ativação da entidade: do passo de ativação deste tick quando disponível,
+     * ou calculado na hora (ex: entidade que nasceu depois do passo).
+     */
+    private static int getTier(Entity entity, ServerWorld world) {
+        WorldTickState state = WORLD_STATES.get(world);
+        if (state == null) {
+            return classifyByDistance(entity, getNearestPlayerDistanceSq(entity, world));
+        }
+        long time = world.getTime();
+        int tier = state.activationPass.getTier(entity);
+        if (tier == EntityActivationPass.UNCLASSIFIED) {
+            return classifyEntity(entity, state, time);
+        }
+        // A entidade pode ter sido acordada depois do passo de ativação deste tick
+        return tier != TIER_ACTIVE && isAwake(entity, state, time) ? TIER_ACTIVE : tier;
+    }
+
+    /**
+     * Classifica uma entidade em um nível de ativação com base na distância ao jogador mais próximo
+     * e nos despertares pendentes.
+     * Pode ser chamado em paralelo pelo passo de ativação: apenas lê o estado da entidade e do mundo.
      *
      * @param entity A entidade.
-     * @param serverWorld O mundo do servidor.
-     * @param distanceSq A distância quadrada limite.
-     * @return true se a entidade está muito longe de todos os jogadores.
+     * @param state O estado do mundo da entidade.
+     * @param time O tempo atual do mundo.
+     * @return O nível de ativação.
+     */
+    private static int classifyEntity(Entity entity, WorldTickState state, long time) {
+        // Uma única consulta responde aos dois limites de distância
+        int tier = classifyByDistance(entity, state.playerIndex.nearestSquaredDistance(entity.getX(), entity.getY(), entity.getZ()));
+        return tier != TIER_ACTIVE && isAwake(entity, state, time) ? TIER_ACTIVE : tier;
+    }
+
+    /**
+     * Verifica se a entidade está dentro de um período de graça (acordada diretamente
+     * ou por uma mudança de bloco na sua seção).
      */
-    private static boolean isEntityTooFarFromServer(Entity entity, ServerWorld serverWorld, double distanceSq) {
-        // Se não houver jogadores, considera longe por padrão?
-        if (serverWorld.getPlayers().isEmpty()) {
-            return true; 
+    private static boolean isAwake(Entity entity, WorldTickState state, long time) {
+        if (!BariumConfig.ENABLE_ENTITY_WAKE_UP) {
+            return false;
         }
+        if (state.entityStates.getWakeUntilTick(state.entityStates.lookup(entity.getId())) > time) {
+            return true;
+        }
+        return !state.wakeSections.isEmpty() && state.wakeSections.get(ChunkSectionPos.toLong(entity.getBlockPos())) > time;
+    }
+
+    private static int classifyByDistance(Entity entity, double nearestPlayerDistanceSq) {
+        if (entity instanceof PlayerEntity) {
+            return TIER_ACTIVE;
+        }
+        EntityTickProfile profile = EntityTickProfile.forType(entity.getType());
+        if (profile.isExempt(entity)) {
+            return TIER_ACTIVE;
+        }
+        // O governador encolhe as distâncias quando o servidor está acima do MSPT alvo
+        double scale = EntityThrottleGovernor.getDistanceSqScale();
+        // Verifica se a entidade está muito longe para ser congelada
+        if (BariumConfig.FREEZE_FAR_ENTITIES && nearestPlayerDistanceSq > profile.getFreezeDistanceSq() * scale) {
+            return TIER_FROZEN;
+        }
+        // Verifica se a entidade está distante para reduzir a frequência de tick
+        if (BariumConfig.REDUCE_FAR_ENTITY_TICKS && nearestPlayerDistanceSq > profile.getReducedDistanceSq() * scale) {
+            return TIER_REDUCED;
+        }
+        return TIER_ACTIVE;
+    }
+
+    /**
+     * Retorna a distância quadrada da entidade até o jogador mais próximo percorrendo todos os jogadores.
+     * Usado apenas enquanto o índice espacial do mundo ainda não existe (ex: primeiro tick).
+     *
+     * @param entity A entidade.
+     * @param serverWorld O mundo do servidor.
+     * @return A distância quadrada, ou Double.MAX_VALUE se não houver jogador relevante.
+     */
+    private static double getNearestPlayerDistanceSq(Entity entity, ServerWorld serverWorld) {
+        // Sem jogadores, considera longe por padrão
+        double nearest = Double.MAX_VALUE;
         for (PlayerEntity player : serverWorld.getPlayers()) {
             // Ignora jogadores em modo espectador ou criativo para cálculo de distância?
             // if (player.isSpectator() || player.isCreative()) continue;
-            if (entity.squaredDistanceTo(player) <= distanceSq) {
-                return false; // Perto de pelo menos um jogador
-            }
+            nearest = Math.min(nearest, entity.squaredDistanceTo(player));
         }
-        return true; // Longe de todos os jogadores relevantes
+        return nearest;
     }
 
     /**
@@ -97,22 +249,53 @@ public class EntityTickOptimizer {
      * @param entity A entidade.
      */
     public static void clearEntityState(Entity entity) {
-        ENTITY_TICK_STATE.remove(entity);
+        World world = entity.getWorld();
+        if (world == null || world.isClient()) {
+            return;
+        }
+        WorldTickState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.entityStates.release(entity.getId());
+        }
     }
 
     /**
      * Limpa todo o estado do otimizador (ex: ao fechar o mundo).
      */
     public static void clearAllStates() {
-        ENTITY_TICK_STATE.clear();
+        WORLD_STATES.clear();
+    }
+
+    /**
+     * Limpa o estado associado a um mundo (ex: quando o mundo é descarregado).
+     *
+     * @param world O mundo.
+     */
+    public static void clearWorldState(ServerWorld world) {
+        WORLD_STATES.remove(world);
     }
 
-    // --- Classe interna para o Estado de Tick ---
+    private static WorldTickState getOrCreateState(ServerWorld world) {
+        return WORLD_STATES.computeIfAbsent(world, w -> new WorldTickState());
+    }
+
+    // --- Classe interna para o Estado por Mundo ---
+
+    private static class WorldTickState {
+        final PlayerSpatialIndex playerIndex = new PlayerSpatialIndex(PLAYER_INDEX_CELL_SIZE);
+        final EntityActivationPass activationPass = new EntityActivationPass();
+        // Estado por entidade (ticks pulados, período de graça), indexado pelo id
+        final EntityStateStore entityStates = new EntityStateStore();
+        // Seção de chunk -> tick até o qual as entidades da seção ficam acordadas
+        final Long2LongOpenHashMap wakeSections = new Long2LongOpenHashMap();
 
-    private static class TickState {
-        // Poderia armazenar informações adicionais aqui se necessário,
-        // como o último tick executado, etc.
-        // Por enquanto, a presença no mapa é suficiente.
+        void pruneWakeSections(long time) {
+            ObjectIterator<Long2LongMap.Entry> iterator = wakeSections.long2LongEntrySet().fastIterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getLongValue() <= time) {
+                    iterator.remove();
+                }
+            }
+        }
     }
 }
-
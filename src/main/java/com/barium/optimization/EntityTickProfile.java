@@ -0,0 +1,141 @@
+package com.barium.optimization;
+
+import com.barium.config.BariumConfig;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Perfil de throttling de ticks por tipo de entidade.
+ * Cada perfil tem suas próprias distâncias de congelamento/redução, intervalos e exceções,
+ * já que pular ticks de um ItemEntity é muito diferente de pular ticks de um villager rodando o cérebro.
+ * Os valores padrão dos tipos pesados podem ser ajustados com os custos medidos por EntityTickCostTracker.
+ */
+public class EntityTickProfile {
+
+    // Distância usada para desligar um nível (nenhuma distância finita a ultrapassa)
+    public static final int DISABLED = -1;
+
+    private static final Map<EntityType<?>, EntityTickProfile> PROFILES = new IdentityHashMap<>();
+
+    // Perfil usado para tipos sem perfil próprio (valores da config)
+    public static final EntityTickProfile DEFAULT = new EntityTickProfile(
+            BariumConfig.ENTITY_FREEZE_DISTANCE, BariumConfig.ENTITY_REDUCED_TICK_DISTANCE, 10, 100, null);
+
+    // Entidades em movimento não devem ser pausadas (itens em correntes de água, carrinhos em trilhos)
+    private static final Predicate<Entity> MOVING = entity -> entity.getVelocity().horizontalLengthSquared() > 1.0E-4;
+
+    static {
+        // Cérebro caro, mas usados em salões de troca e fazendas: reduz cedo, congela só longe.
+        // Villagers sendo transportados (carrinho/barco) não são pausados.
+        EntityTickProfile villager = new EntityTickProfile(64, 32, 4, 40, Entity::hasVehicle);
+        register(EntityType.VILLAGER, villager);
+
+        // Cérebro caro e sem uso fora de interações próximas
+        EntityTickProfile piglin = new EntityTickProfile(48, 24, 5, 100, null);
+        register(EntityType.PIGLIN, piglin);
+        register(EntityType.PIGLIN_BRUTE, piglin);
+
+        // Decorativas: praticamente só verificam se continuam presas ao bloco
+        EntityTickProfile decoration = new EntityTickProfile(16, 8, 20, 200, null);
+        register(EntityType.ITEM_FRAME, decoration);
+        register(EntityType.GLOW_ITEM_FRAME, decoration);
+        register(EntityType.ARMOR_STAND, decoration);
+
+        // Colisão cara, mas carrinhos em movimento fazem parte de sistemas de transporte
+        EntityTickProfile minecart = new EntityTickProfile(32, 16, 10, 100, MOVING);
+        register(EntityType.MINECART, minecart);
+        register(EntityType.CHEST_MINECART, minecart);
+        register(EntityType.FURNACE_MINECART, minecart);
+        register(EntityType.HOPPER_MINECART, minecart);
+        register(EntityType.TNT_MINECART, minecart);
+        register(EntityType.SPAWNER_MINECART, minecart);
+        register(EntityType.COMMAND_BLOCK_MINECART, minecart);
+
+        // Numerosos e baratos individualmente; os temporizadores são compensados por SkippedTickCompensator
+        register(EntityType.ITEM, new EntityTickProfile(48, 24, 4, 100, MOVING));
+        register(EntityType.EXPERIENCE_ORB, new EntityTickProfile(32, 16, 4, 100, MOVING));
+    }
+
+    private final int freezeDistance;
+    private final int reducedDistance;
+    private final double freezeDistanceSq;
+    private final double reducedDistanceSq;
+    private final int reducedTickInterval;
+    private final int frozenTickInterval;
+    private final Predicate<Entity> exemption;
+
+    /**
+     * @param freezeDistance Distância a partir da qual a entidade é congelada, ou {@link #DISABLED}.
+     * @param reducedDistance Distância a partir da qual a frequência de tick é reduzida, ou {@link #DISABLED}.
+     * @param reducedTickInterval Intervalo de ticks no nível reduzido (1 tick a cada N).
+     * @param frozenTickInterval Intervalo de ticks no nível congelado (1 tick a cada N).
+     * @param exemption Condição que mantém a entidade sempre ativa (pode ser null).
+     */
+    public EntityTickProfile(int freezeDistance, int reducedDistance, int reducedTickInterval, int frozenTickInterval, Predicate<Entity> exemption) {
+        this.freezeDistance = freezeDistance;
+        this.reducedDistance = reducedDistance;
+        this.freezeDistanceSq = freezeDistance == DISABLED ? Double.MAX_VALUE : (double) freezeDistance * freezeDistance;
+        this.reducedDistanceSq = reducedDistance == DISABLED ? Double.MAX_VALUE : (double) reducedDistance * reducedDistance;
+        this.reducedTickInterval = Math.max(1, reducedTickInterval);
+        this.frozenTickInterval = Math.max(1, frozenTickInterval);
+        this.exemption = exemption;
+    }
+
+    /**
+     * Registra (ou substitui) o perfil de um tipo de entidade.
+     */
+    public static void register(EntityType<?> type, EntityTickProfile profile) {
+        PROFILES.put(type, profile);
+    }
+
+    /**
+     * @return O perfil do tipo, ou {@link #DEFAULT} se o tipo não tiver perfil próprio.
+     */
+    public static EntityTickProfile forType(EntityType<?> type) {
+        if (!BariumConfig.ENABLE_ENTITY_TYPE_PROFILES) {
+            return DEFAULT;
+        }
+        return PROFILES.getOrDefault(type, DEFAULT);
+    }
+
+    /**
+     * @return A maior distância usada por qualquer perfil (tamanho mínimo das células do índice de jogadores).
+     */
+    public static int getMaxDistance() {
+        int max = Math.max(DEFAULT.freezeDistance, DEFAULT.reducedDistance);
+        for (EntityTickProfile profile : PROFILES.values()) {
+            max = Math.max(max, Math.max(profile.freezeDistance, profile.reducedDistance));
+        }
+        return max;
+    }
+
+    public boolean isExempt(Entity entity) {
+        return exemption != null && exemption.test(entity);
+    }
+
+    public double getFreezeDistanceSq() {
+        return freezeDistanceSq;
+    }
+
+    public double getReducedDistanceSq() {
+        return reducedDistanceSq;
+    }
+
+    public int getReducedTickInterval() {
+        return reducedTickInterval;
+    }
+
+    public int getFrozenTickInterval() {
+        return frozenTickInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "freeze=" + freezeDistance + ", reduced=" + reducedDistance
+                + ", reducedInterval=" + reducedTickInterval + ", frozenInterval=" + frozenTickInterval;
+    }
+}
@@ -0,0 +1,112 @@
+package com.barium.optimization;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.tag.BlockTags;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.world.BlockView;
+
+/**
+ * Regras de movimento a pé usadas pelos planejadores de rota do Barium (A* assíncrono e grafo de seções).
+ * São conservadoras: na dúvida, a posição é bloqueada e o pathfinding vanilla resolve o caso.
+ * Valem para mobs de uma coluna e até 2 blocos de altura.
+ * O terreno é lido através de {@link Terrain}: dos bitmaps de walkability das seções (WalkabilityCache) na thread
+ * do mundo ou da cópia deles (PathRegionSnapshot) no A* assíncrono. Os bitmaps são calculados com isOpenState e isFloorState.
+ */
+public class GroundMovement {
+
+    // Valor devolvido por nextY quando o movimento é inválido
+    public static final int BLOCKED = Integer.MIN_VALUE;
+
+    // Queda máxima aceita em um passo (a mesma altura segura padrão dos mobs)
+    public static final int MAX_DROP = 3;
+
+    /**
+     * Terreno consultado pelas regras de movimento.
+     */
+    public interface Terrain {
+        /**
+         * @return true se um mob pode ocupar o bloco (sem colisão, sem fluido e sem perigo).
+         */
+        boolean isOpen(int x, int y, int z);
+
+        /**
+         * @return true se o bloco tem topo cheio na altura do bloco (cercas e muros não contam).
+         */
+        boolean isFloor(int x, int y, int z);
+
+        /**
+         * @return true se um mob pode ficar em pé na posição (pés em y).
+         */
+        default boolean canStand(int x, int y, int z) {
+            return isFloor(x, y - 1, z) && isOpen(x, y, z) && isOpen(x, y + 1, z);
+        }
+    }
+
+    /**
+     * @return true se um mob pode ocupar um bloco com este estado.
+     */
+    public static boolean isOpenState(BlockView view, BlockPos pos, BlockState state) {
+        if (state.isAir()) {
+            // VOID_AIR: fora do mundo
+            return !state.isOf(Blocks.VOID_AIR);
+        }
+        if (!state.getFluidState().isEmpty() || isDangerous(state)) {
+            return false;
+        }
+        return state.getCollisionShape(view, pos).isEmpty();
+    }
+
+    /**
+     * @return true se um bloco com este estado serve de chão.
+     */
+    public static boolean isFloorState(BlockView view, BlockPos pos, BlockState state) {
+        if (state.isAir() || state.isOf(Blocks.MAGMA_BLOCK) || state.isIn(BlockTags.CAMPFIRES)) {
+            return false;
+        }
+        VoxelShape shape = state.getCollisionShape(view, pos);
+        return !shape.isEmpty() && shape.getMax(Direction.Axis.Y) == 1.0;
+    }
+
+    /**
+     * Calcula o movimento de uma posição em pé para a coluna vizinha (nx, nz).
+     *
+     * @return A altura dos pés após o movimento, ou {@link #BLOCKED} se o movimento é inválido.
+     */
+    public static int nextY(Terrain terrain, int x, int y, int z, int nx, int nz, boolean diagonal) {
+        if (diagonal) {
+            // Só no mesmo nível e sem cortar cantos
+            boolean clear = terrain.isOpen(nx, y, z) && terrain.isOpen(nx, y + 1, z)
+                    && terrain.isOpen(x, y, nz) && terrain.isOpen(x, y + 1, nz);
+            return clear && terrain.canStand(nx, y, nz) ? y : BLOCKED;
+        }
+        if (terrain.canStand(nx, y, nz)) {
+            return y;
+        }
+        // Subida de um bloco: precisa de espaço acima da posição atual para o pulo
+        if (terrain.canStand(nx, y + 1, nz) && terrain.isOpen(x, y + 2, z)) {
+            return y + 1;
+        }
+        // Queda: a coluna precisa estar livre até encontrar chão
+        if (!terrain.isOpen(nx, y + 1, nz)) {
+            return BLOCKED;
+        }
+        for (int drop = 0; drop <= MAX_DROP; drop++) {
+            int feetY = y - drop;
+            if (!terrain.isOpen(nx, feetY, nz)) {
+                return BLOCKED;
+            }
+            if (terrain.isFloor(nx, feetY - 1, nz)) {
+                return feetY;
+            }
+        }
+        return BLOCKED;
+    }
+
+    private static boolean isDangerous(BlockState state) {
+        return state.isIn(BlockTags.FIRE) || state.isOf(Blocks.SWEET_BERRY_BUSH) || state.isOf(Blocks.WITHER_ROSE)
+                || state.isOf(Blocks.POWDER_SNOW) || state.isOf(Blocks.COBWEB);
+    }
+}
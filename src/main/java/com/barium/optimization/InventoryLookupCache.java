@@ -0,0 +1,97 @@
+package com.barium.optimization;
+
+import com.barium.util.BlockPosMap;
+import net.minecraft.block.entity.BlockEntity;
+import net.minecraft.inventory.DoubleInventory;
+import net.minecraft.inventory.Inventory;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache, por posição, dos inventários resolvidos por HopperBlockEntity.getInventoryAt (destino de hoppers,
+ * droppers e crafters; origem de hoppers).
+ * Só guarda resultados que dependem apenas do bloco na posição: inventários de BlockEntity, baús duplos
+ * e a ausência de inventário. Inventários de entidades (escolhidos ao acaso entre as da caixa) e de
+ * InventoryProvider (ex: composteira, um objeto novo a cada consulta) são sempre resolvidos pelo vanilla.
+ *
+ * Uma entrada é descartada quando o bloco da posição muda (um baú duplo muda de estado quando a outra metade
+ * muda) ou quando uma entidade com inventário muda para um bloco de onde pode alcançar a caixa da posição.
+ * A ausência de inventário não é guardada com uma entidade com inventário por perto (ver
+ * BlockTickOptimizer.cacheInventory), já que ela pode tocar a caixa sem mudar de bloco.
+ * Usado apenas na thread do mundo.
+ */
+public class InventoryLookupCache {
+
+    // Limite de entradas por mundo (o cache é esvaziado ao atingir)
+    private static final int MAX_ENTRIES = 16384;
+
+    private final BlockPosMap<Entry> entries = new BlockPosMap<>();
+
+    /**
+     * @return A entrada da posição, ou null se o inventário precisa ser resolvido.
+     */
+    @Nullable
+    public Entry get(long pos) {
+        Entry entry = entries.get(pos);
+        if (entry != null && entry.inventory() instanceof BlockEntity blockEntity && blockEntity.isRemoved()) {
+            entries.remove(pos);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Guarda o inventário resolvido para a posição, se o resultado puder ser reutilizado.
+     */
+    public void put(long pos, @Nullable Inventory inventory) {
+        if (!isCacheable(inventory)) {
+            return;
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(pos, new Entry(inventory));
+    }
+
+    public void invalidate(long pos) {
+        entries.remove(pos);
+    }
+
+    /**
+     * Descarta as entradas de todas as posições da caixa de blocos (inclusive).
+     */
+    public void invalidate(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    entries.remove(BlockPos.asLong(x, y, z));
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta as entradas de um chunk descarregado.
+     */
+    public void onChunkUnloaded(ChunkPos pos) {
+        entries.removeChunk(pos);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static boolean isCacheable(@Nullable Inventory inventory) {
+        return inventory == null || inventory instanceof BlockEntity || inventory instanceof DoubleInventory;
+    }
+
+    /**
+     * Resultado em cache (inventory null: não há inventário na posição).
+     */
+    public record Entry(@Nullable Inventory inventory) {
+    }
+}
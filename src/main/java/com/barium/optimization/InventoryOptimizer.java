@@ -1,129 +1,111 @@
 package com.barium.optimization;
 
-import com.barium.BariumMod;
 import com.barium.config.BariumConfig;
+import com.barium.mixin.DoubleInventoryAccessor;
+import net.minecraft.block.entity.HopperBlockEntity;
 import net.minecraft.inventory.Inventory;
+import net.minecraft.inventory.LootableInventory;
 import net.minecraft.item.ItemStack;
-import net.minecraft.util.math.BlockPos;
-
-import java.util.Map;
-import java.util.WeakHashMap;
+import org.jetbrains.annotations.Nullable;
 
 /**
- * Otimiza verificações em inventários e containers, usando cache de slots vazios.
+ * Otimiza verificações em inventários e containers com o estado dos slots acompanhado por InventorySlotTracker:
+ * bitsets de slots vazios, cheios e parciais atualizados pelos hooks de setStack/removeStack/markDirty.
+ * Containers acompanhados: LootableContainerBlockEntity (baús, barris, dispensers, droppers, shulker boxes) e
+ * baús duplos formados por eles. Hoppers ficam de fora: o setStack deles não passa pelos hooks.
  * Baseado nos mappings Yarn 1.21.5+build.1
  */
 public class InventoryOptimizer {
 
-    // Cache para informações sobre slots vazios em inventários
-    // Usamos WeakHashMap para permitir que os inventários sejam coletados pelo GC se não referenciados
-    private static final Map<Inventory, InventoryState> INVENTORY_STATE_CACHE = new WeakHashMap<>();
-    private static final long CACHE_DURATION_MS = 1000; // Cache válido por 1 segundo
-
     /**
-     * Verifica se uma busca completa no inventário pode ser evitada.
+     * Verifica se uma busca completa no inventário pode ser evitada porque não há espaço.
      * Útil para operações como `canInsert` ou `transfer`.
+     * A resposta é exata: sem slots vazios e sem slot parcial com o mesmo item, não há espaço. Com todos os slots
+     * cheios ou algum vazio a resposta sai só dos bitsets; os slots parciais são comparados com o item.
      *
      * @param inventory O inventário.
-     * @param stackToInsert O ItemStack que se deseja inserir (opcional, para verificações mais específicas).
-     * @return true se a busca completa pode ser pulada (ex: cache indica que está cheio).
+     * @param stackToInsert O ItemStack que se deseja inserir, ou null/vazio para "cabe qualquer item?".
+     * @return true se não há espaço (a busca completa pode ser pulada).
      */
-    public static boolean canSkipFullInventoryCheck(Inventory inventory, ItemStack stackToInsert) {
+    public static boolean canSkipFullInventoryCheck(Inventory inventory, @Nullable ItemStack stackToInsert) {
         if (!BariumConfig.ENABLE_INVENTORY_OPTIMIZATION || !BariumConfig.CACHE_EMPTY_SLOTS) {
             return false;
         }
-
-        InventoryState state = INVENTORY_STATE_CACHE.get(inventory);
-
-        // Verifica o cache
-        if (state != null && state.isValid()) {
-            // Se o cache indica que não há slots vazios, podemos pular a busca
-            if (state.firstEmptySlot == -1) {
-                // Se estamos tentando inserir um item, precisamos verificar se há stacks compatíveis para merge
-                // Se não estamos inserindo (apenas checando se está cheio), podemos pular.
-                if (stackToInsert == null || stackToInsert.isEmpty()) {
-                    // BariumMod.LOGGER.debug("Skipping full check: Cache indicates inventory is full.");
-                    return true; // Cache diz que está cheio
-                }
-                // Se stackToInsert não é nulo, ainda precisamos verificar merge, então não pulamos só com base nisso.
-            }
-            // Poderíamos adicionar mais lógica aqui, como pular se o item a inserir não pode empilhar
-            // e o cache indica que não há slots vazios.
+        if (inventory instanceof DoubleInventoryAccessor doubleInventory) {
+            return canSkipFullInventoryCheck(doubleInventory.barium$getFirst(), stackToInsert)
+                    && canSkipFullInventoryCheck(doubleInventory.barium$getSecond(), stackToInsert);
         }
 
-        return false; // Cache inválido ou não conclusivo, faça a verificação completa
-    }
-
-    /**
-     * Atualiza o cache do estado do inventário após uma modificação.
-     *
-     * @param inventory O inventário modificado.
-     */
-    public static void updateInventoryCache(Inventory inventory) {
-        if (!BariumConfig.ENABLE_INVENTORY_OPTIMIZATION || !BariumConfig.CACHE_EMPTY_SLOTS) {
-            return;
+        InventorySlotTracker tracker = getRefreshedTracker(inventory);
+        if (tracker == null || tracker.getEmptySlots() != 0) {
+            return false; // Não acompanhado ou há slot vazio
         }
-
-        int firstEmpty = -1;
-        int size = inventory.size();
-        for (int i = 0; i < size; ++i) {
-            if (inventory.getStack(i).isEmpty()) {
-                firstEmpty = i;
-                break;
+        long partial = tracker.getPartialSlots();
+        if (partial == 0) {
+            return true; // Todos os slots cheios
+        }
+        if (stackToInsert == null || stackToInsert.isEmpty()) {
+            return false; // Algum slot parcial ainda aceita o próprio item
+        }
+        while (partial != 0) {
+            int slot = Long.numberOfTrailingZeros(partial);
+            partial &= partial - 1;
+            if (ItemStack.areItemsAndComponentsEqual(inventory.getStack(slot), stackToInsert)) {
+                return false; // Pode juntar com um stack parcial
             }
         }
-
-        INVENTORY_STATE_CACHE.put(inventory, new InventoryState(firstEmpty));
-        // BariumMod.LOGGER.debug("Inventory cache updated. First empty slot: {}", firstEmpty);
+        return true;
     }
 
     /**
-     * Obtém o índice do primeiro slot vazio do cache, se disponível.
+     * Obtém o índice do primeiro slot vazio.
      *
      * @param inventory O inventário.
-     * @return O índice do primeiro slot vazio, ou -1 se cheio ou cache inválido.
+     * @return O índice do primeiro slot vazio, ou -1 se cheio ou não acompanhado (faça a busca normal).
      */
-    public static int getFirstEmptySlotFromCache(Inventory inventory) {
+    public static int getFirstEmptySlot(Inventory inventory) {
         if (!BariumConfig.ENABLE_INVENTORY_OPTIMIZATION || !BariumConfig.CACHE_EMPTY_SLOTS) {
             return -1; // Retorna -1 para indicar que a busca normal deve ser feita
         }
-
-        InventoryState state = INVENTORY_STATE_CACHE.get(inventory);
-        if (state != null && state.isValid()) {
-            return state.firstEmptySlot;
+        InventorySlotTracker tracker = getRefreshedTracker(inventory);
+        if (tracker == null || tracker.getEmptySlots() == 0) {
+            return -1;
         }
-        return -1; // Cache inválido
+        return Long.numberOfTrailingZeros(tracker.getEmptySlots());
     }
-    
+
     /**
-     * Limpa o cache de um inventário específico.
-     * 
-     * @param inventory O inventário.
+     * @return O contador de modificações do inventário, ou -1 se não acompanhado. Um valor igual ao de uma
+     *         consulta anterior garante que nenhum slot mudou (exceto por mudanças sem markDirty).
      */
-    public static void invalidateInventoryCache(Inventory inventory) {
-        INVENTORY_STATE_CACHE.remove(inventory);
+    public static long getModificationCount(Inventory inventory) {
+        return inventory instanceof TrackedInventory tracked ? tracked.barium$getSlotTracker().getModCount() : -1;
     }
 
     /**
-     * Limpa todo o cache (ex: ao fechar o mundo).
+     * Descarta o estado dos slots de um inventário (ex: conteúdo substituído sem setStack/markDirty).
+     *
+     * @param inventory O inventário.
      */
-    public static void clearAllCaches() {
-        INVENTORY_STATE_CACHE.clear();
+    public static void invalidateInventoryCache(Inventory inventory) {
+        if (inventory instanceof TrackedInventory tracked) {
+            tracked.barium$getSlotTracker().invalidate();
+        }
     }
 
-    // --- Classe interna para o Estado do Inventário ---
-
-    private static class InventoryState {
-        final int firstEmptySlot; // -1 se não houver slots vazios
-        final long timestamp;
-
-        InventoryState(int firstEmptySlot) {
-            this.firstEmptySlot = firstEmptySlot;
-            this.timestamp = System.currentTimeMillis();
+    /**
+     * @return O estado dos slots atualizado, ou null se o inventário não é acompanhado.
+     */
+    @Nullable
+    private static InventorySlotTracker getRefreshedTracker(Inventory inventory) {
+        if (!(inventory instanceof TrackedInventory tracked) || inventory instanceof HopperBlockEntity) {
+            return null;
         }
-
-        boolean isValid() {
-            return (System.currentTimeMillis() - timestamp) < CACHE_DURATION_MS;
+        // Loot ainda não gerado: o conteúdo real só existe depois que alguém abre ou consulta o container
+        if (inventory instanceof LootableInventory lootable && lootable.getLootTable() != null) {
+            return null;
         }
+        InventorySlotTracker tracker = tracked.barium$getSlotTracker();
+        return tracker.refresh(inventory) ? tracker : null;
     }
 }
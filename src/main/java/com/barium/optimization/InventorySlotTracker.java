@@ -0,0 +1,139 @@
+package com.barium.optimization;
+
+import net.minecraft.inventory.Inventory;
+import net.minecraft.item.ItemStack;
+
+/**
+ * Estado dos slots de um inventário de até 64 slots: bitsets de slots vazios, cheios e parcialmente cheios,
+ * mais um contador de modificações.
+ *
+ * Os bitsets não são recalculados a cada mudança: setStack/removeStack marcam o slot alterado e um markDirty fora
+ * dessas operações (o item foi alterado direto no ItemStack, ex: hopper somando a um stack existente) marca todos.
+ * A próxima consulta (refresh) reclassifica só os slots marcados. Mudanças feitas no ItemStack sem markDirty
+ * não são vistas, assim como não são vistas por comparadores no vanilla.
+ * Usado apenas na thread do mundo.
+ */
+public class InventorySlotTracker {
+
+    public static final int MAX_SLOTS = 64;
+
+    private long emptySlots;
+    private long fullSlots;
+    private long partialSlots;
+    // Slots a reclassificar na próxima consulta
+    private long dirtySlots;
+    private boolean allDirty = true;
+    // setStack/removeStack em andamento: o markDirty interno deles já é coberto pelo slot alterado
+    private int slotChangeDepth;
+    private long modCount;
+
+    /**
+     * Início de uma operação em um slot (setStack/removeStack).
+     */
+    public void beginSlotChange() {
+        slotChangeDepth++;
+    }
+
+    /**
+     * Fim de uma operação em um slot (setStack/removeStack).
+     */
+    public void endSlotChange(int slot) {
+        if (slotChangeDepth > 0) {
+            slotChangeDepth--;
+        }
+        onSlotChanged(slot);
+    }
+
+    /**
+     * Um slot mudou.
+     */
+    public void onSlotChanged(int slot) {
+        modCount++;
+        if (slot >= 0 && slot < MAX_SLOTS) {
+            dirtySlots |= 1L << slot;
+        } else {
+            allDirty = true;
+        }
+    }
+
+    /**
+     * markDirty do inventário: fora de setStack/removeStack não se sabe qual slot mudou.
+     */
+    public void onMarkDirty() {
+        modCount++;
+        if (slotChangeDepth == 0) {
+            allDirty = true;
+        }
+    }
+
+    /**
+     * Descarta os bitsets; a próxima consulta reclassifica todos os slots.
+     */
+    public void invalidate() {
+        modCount++;
+        allDirty = true;
+    }
+
+    /**
+     * Reclassifica os slots marcados desde a última consulta.
+     *
+     * @param inventory O inventário acompanhado.
+     * @return false se o inventário tem slots demais para ser acompanhado.
+     */
+    public boolean refresh(Inventory inventory) {
+        int size = inventory.size();
+        if (size > MAX_SLOTS) {
+            return false;
+        }
+        // Consultas não acontecem dentro de setStack/removeStack; uma contagem pendente seria de uma operação que falhou
+        slotChangeDepth = 0;
+        long sizeMask = size == MAX_SLOTS ? -1L : (1L << size) - 1;
+        long dirty = allDirty ? sizeMask : dirtySlots & sizeMask;
+        allDirty = false;
+        dirtySlots = 0;
+        while (dirty != 0) {
+            int slot = Long.numberOfTrailingZeros(dirty);
+            dirty &= dirty - 1;
+            classify(inventory, slot);
+        }
+        // O tamanho não muda para block entities, mas os bits fora dele nunca devem contar
+        emptySlots &= sizeMask;
+        fullSlots &= sizeMask;
+        partialSlots &= sizeMask;
+        return true;
+    }
+
+    private void classify(Inventory inventory, int slot) {
+        long bit = 1L << slot;
+        emptySlots &= ~bit;
+        fullSlots &= ~bit;
+        partialSlots &= ~bit;
+        ItemStack stack = inventory.getStack(slot);
+        if (stack.isEmpty()) {
+            emptySlots |= bit;
+        } else if (stack.getCount() >= inventory.getMaxCount(stack)) {
+            fullSlots |= bit;
+        } else {
+            partialSlots |= bit;
+        }
+    }
+
+    public long getEmptySlots() {
+        return emptySlots;
+    }
+
+    public long getFullSlots() {
+        return fullSlots;
+    }
+
+    public long getPartialSlots() {
+        return partialSlots;
+    }
+
+    /**
+     * @return Quantidade de modificações (setStack, removeStack, markDirty) desde a criação do inventário.
+     */
+    public long getModCount() {
+        return modCount;
+    }
+}
@@ -0,0 +1,134 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * Índice das entidades de item de um mundo por seção de chunk.
+ * As entidades entram quando são carregadas no mundo, mudam de seção quando a posição muda
+ * e saem quando são removidas ou descarregadas.
+ * Permite responder "há algum item nesta caixa?" olhando só as seções que a caixa cobre,
+ * sem a busca de entidades do mundo. Usado apenas na thread do mundo.
+ */
+public class ItemEntitySectionIndex {
+
+    private static final long NOT_INDEXED = Long.MIN_VALUE;
+    // Margem das consultas: a caixa de um item pode passar um pouco da seção onde está sua posição
+    private static final double QUERY_MARGIN = 0.5;
+
+    private final Long2ObjectOpenHashMap<ObjectArrayList<ItemEntity>> sections = new Long2ObjectOpenHashMap<>();
+    private final Reference2LongOpenHashMap<ItemEntity> entitySections = new Reference2LongOpenHashMap<>();
+
+    public ItemEntitySectionIndex() {
+        this.entitySections.defaultReturnValue(NOT_INDEXED);
+    }
+
+    /**
+     * Adiciona uma entidade carregada no mundo.
+     */
+    public void add(ItemEntity entity) {
+        move(entity, entity.getX(), entity.getY(), entity.getZ(), true);
+    }
+
+    /**
+     * Atualiza a seção de uma entidade já indexada.
+     *
+     * @param entity A entidade.
+     * @param x A nova posição x.
+     * @param y A nova posição y.
+     * @param z A nova posição z.
+     */
+    public void onMoved(ItemEntity entity, double x, double y, double z) {
+        move(entity, x, y, z, false);
+    }
+
+    /**
+     * Remove uma entidade removida ou descarregada.
+     */
+    public void remove(ItemEntity entity) {
+        long section = entitySections.removeLong(entity);
+        if (section != NOT_INDEXED) {
+            removeFromSection(section, entity);
+        }
+    }
+
+    /**
+     * @return true se alguma entidade de item viva intersecta a caixa.
+     */
+    public boolean hasItemsIn(Box box) {
+        if (entitySections.isEmpty()) {
+            return false;
+        }
+        int minX = MathHelper.floor(box.minX - QUERY_MARGIN) >> 4;
+        int minY = MathHelper.floor(box.minY - QUERY_MARGIN) >> 4;
+        int minZ = MathHelper.floor(box.minZ - QUERY_MARGIN) >> 4;
+        int maxX = MathHelper.floor(box.maxX + QUERY_MARGIN) >> 4;
+        int maxY = MathHelper.floor(box.maxY + QUERY_MARGIN) >> 4;
+        int maxZ = MathHelper.floor(box.maxZ + QUERY_MARGIN) >> 4;
+        for (int sx = minX; sx <= maxX; sx++) {
+            for (int sy = minY; sy <= maxY; sy++) {
+                for (int sz = minZ; sz <= maxZ; sz++) {
+                    ObjectArrayList<ItemEntity> entities = sections.get(ChunkSectionPos.asLong(sx, sy, sz));
+                    if (entities == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < entities.size(); i++) {
+                        ItemEntity entity = entities.get(i);
+                        if (entity.isAlive() && entity.getBoundingBox().intersects(box)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return entitySections.size();
+    }
+
+    private void move(ItemEntity entity, double x, double y, double z, boolean insert) {
+        long current = entitySections.getLong(entity);
+        if (current == NOT_INDEXED && !insert) {
+            return;
+        }
+        long section = ChunkSectionPos.asLong(MathHelper.floor(x) >> 4, MathHelper.floor(y) >> 4, MathHelper.floor(z) >> 4);
+        if (section == current) {
+            return;
+        }
+        if (current != NOT_INDEXED) {
+            removeFromSection(current, entity);
+        }
+        entitySections.put(entity, section);
+        ObjectArrayList<ItemEntity> entities = sections.get(section);
+        if (entities == null) {
+            entities = new ObjectArrayList<>(4);
+            sections.put(section, entities);
+        }
+        entities.add(entity);
+    }
+
+    private void removeFromSection(long section, ItemEntity entity) {
+        ObjectArrayList<ItemEntity> entities = sections.get(section);
+        if (entities == null) {
+            return;
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            if (entities.get(i) == entity) {
+                // A ordem não importa: troca pelo último
+                entities.set(i, entities.get(entities.size() - 1));
+                entities.remove(entities.size() - 1);
+                break;
+            }
+        }
+        if (entities.isEmpty()) {
+            sections.remove(section);
+        }
+    }
+}
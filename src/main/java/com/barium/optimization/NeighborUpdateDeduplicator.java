@@ -0,0 +1,150 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.DoorBlock;
+import net.minecraft.block.FenceGateBlock;
+import net.minecraft.block.NoteBlock;
+import net.minecraft.block.RedstoneWireBlock;
+import net.minecraft.block.TrapdoorBlock;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.block.WireOrientation;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Deduplicação das atualizações de vizinhos (World.updateNeighborsAlways e World.updateNeighbor) de um mundo
+ * dentro de um tick. Uma atualização é redundante se o mesmo bloco já recebeu neste tick uma atualização
+ * da mesma origem e nenhum bloco ao alcance das leituras dele mudou desde então (ChunkSectionVersions, por seção):
+ * o neighborUpdate vanilla leria exatamente o mesmo mundo e chegaria ao mesmo resultado. Fontes de potência que mudam
+ * sem mudar o estado do bloco (saída de comparadores, baús com armadilha) também avançam a versão da seção.
+ *
+ * Só blocos com alcance de leitura conhecido e que não agendam ticks são deduplicados (ver getReach): fios,
+ * portas, alçapões, portões e blocos musicais. Pistões (calculatePush lê até 12 blocos e ramos de slime/mel),
+ * trilhos (energia lida a até 8 trilhos), observadores, repetidores, comparadores, tochas, lâmpadas e fluidos
+ * sempre recebem a atualização.
+ * As atualizações não redundantes seguem na ordem vanilla (a fila de ChainRestrictedNeighborUpdater),
+ * então a ordem continua estável e determinística; nada é adiado ou reordenado.
+ * Usado apenas na thread do mundo.
+ */
+public class NeighborUpdateDeduplicator {
+
+    // Limite de entradas por tick (esvaziado ao atingir)
+    private static final int MAX_ENTRIES = 16384;
+    private static final int NOT_DEDUPLICATED = -1;
+
+    // Última entrega por bloco: posição -> índice nos arrays abaixo (reutilizados entre ticks, sem alocação por entrega)
+    private final Long2IntOpenHashMap delivered = new Long2IntOpenHashMap();
+    private Block[] sourceBlocks = new Block[256];
+    private WireOrientation[] orientations = new WireOrientation[256];
+    // Carimbo das versões de seção no momento da entrega
+    private long[] stamps = new long[256];
+    private long tick = Long.MIN_VALUE;
+    private long skippedTotal;
+
+    public NeighborUpdateDeduplicator() {
+        delivered.defaultReturnValue(-1);
+    }
+
+    /**
+     * Verifica se uma atualização de vizinho é redundante. Não registra nada: só as atualizações de fato entregues
+     * devem ser registradas (recordDelivery), senão uma atualização adiada seria descartada ao ser reentregue.
+     *
+     * @param time O tempo atual do mundo.
+     * @param target O bloco atualizado.
+     * @param targetState O estado do bloco atualizado.
+     * @param sourceBlock O bloco de origem da atualização.
+     * @param orientation A orientação (experimentos de redstone), ou null.
+     * @param versions As versões das seções do mundo.
+     * @return true se a atualização é redundante e pode ser descartada.
+     */
+    public boolean isRedundant(long time, BlockPos target, BlockState targetState, Block sourceBlock,
+                               @Nullable WireOrientation orientation, ChunkSectionVersions versions) {
+        if (time != tick) {
+            tick = time;
+            clear();
+        }
+        int reach = getReach(targetState);
+        if (reach == NOT_DEDUPLICATED) {
+            return false;
+        }
+        int index = delivered.get(target.asLong());
+        if (index < 0 || sourceBlocks[index] != sourceBlock || orientations[index] != orientation) {
+            return false;
+        }
+        int x = target.getX();
+        int y = target.getY();
+        int z = target.getZ();
+        if (versions.isUnchangedSince(x - reach, y - reach, z - reach, x + reach, y + reach, z + reach, stamps[index])) {
+            skippedTotal++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Registra a entrega de uma atualização de vizinho (chamado depois de isRedundant no mesmo tick).
+     *
+     * @param target O bloco atualizado.
+     * @param targetState O estado do bloco atualizado.
+     * @param sourceBlock O bloco de origem da atualização.
+     * @param orientation A orientação (experimentos de redstone), ou null.
+     * @param versions As versões das seções do mundo.
+     */
+    public void recordDelivery(BlockPos target, BlockState targetState, Block sourceBlock,
+                               @Nullable WireOrientation orientation, ChunkSectionVersions versions) {
+        if (getReach(targetState) == NOT_DEDUPLICATED) {
+            return;
+        }
+        long key = target.asLong();
+        int index = delivered.get(key);
+        if (index < 0) {
+            if (delivered.size() >= MAX_ENTRIES) {
+                clear();
+            }
+            index = delivered.size();
+            ensureCapacity(index + 1);
+            delivered.put(key, index);
+        }
+        sourceBlocks[index] = sourceBlock;
+        orientations[index] = orientation;
+        stamps[index] = versions.getStamp();
+    }
+
+    public long getSkippedTotal() {
+        return skippedTotal;
+    }
+
+    /**
+     * @return O alcance das leituras do neighborUpdate do bloco, ou NOT_DEDUPLICATED se ele lê mais longe
+     *         ou agenda ticks. Fio e portas (metade de cima lendo a potência da de baixo) leem até 3 blocos.
+     */
+    private static int getReach(BlockState state) {
+        Block block = state.getBlock();
+        if (block instanceof RedstoneWireBlock || block instanceof DoorBlock || block instanceof TrapdoorBlock
+                || block instanceof FenceGateBlock || block instanceof NoteBlock) {
+            return 3;
+        }
+        return NOT_DEDUPLICATED;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > stamps.length) {
+            int capacity = Math.max(size, stamps.length * 2);
+            sourceBlocks = Arrays.copyOf(sourceBlocks, capacity);
+            orientations = Arrays.copyOf(orientations, capacity);
+            stamps = Arrays.copyOf(stamps, capacity);
+        }
+    }
+
+    private void clear() {
+        if (!delivered.isEmpty()) {
+            // Solta as referências aos blocos e orientações do tick anterior
+            Arrays.fill(sourceBlocks, 0, delivered.size(), null);
+            Arrays.fill(orientations, 0, delivered.size(), null);
+            delivered.clear();
+        }
+    }
+}
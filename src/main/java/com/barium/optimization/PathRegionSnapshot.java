@@ -0,0 +1,118 @@
+package com.barium.optimization;
+
+import net.minecraft.server.world.ServerWorld;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cópia imutável dos bitmaps de walkability (SectionWalkabilityBitmap) de uma região do mundo, para calcular
+ * rotas fora da thread do servidor. Os planos sólido e "em pé" de cada seção são copiados do WalkabilityCache
+ * na thread do mundo (128 longs por seção, em vez da paleta de estados); depois disso a cópia pode ser lida
+ * de qualquer thread, e as regras de GroundMovement viram testes de bit.
+ * Posições fora da região ou em chunks não carregados nunca são passáveis nem chão.
+ */
+public class PathRegionSnapshot implements GroundMovement.Terrain {
+
+    private final int minSectionX, minSectionY, minSectionZ;
+    private final int sizeX, sizeY, sizeZ;
+    // null = seção indisponível (chunk não carregado ou fora do mundo)
+    private final long[][] passable;
+    private final long[][] solid;
+    private final long[][] standable;
+
+    private PathRegionSnapshot(int minSectionX, int minSectionY, int minSectionZ, int sizeX, int sizeY, int sizeZ) {
+        this.minSectionX = minSectionX;
+        this.minSectionY = minSectionY;
+        this.minSectionZ = minSectionZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        int count = sizeX * sizeY * sizeZ;
+        this.passable = new long[count][];
+        this.solid = new long[count][];
+        this.standable = new long[count][];
+    }
+
+    /**
+     * Copia os bitmaps das seções que cobrem a caixa (calculando os que ainda não estão em cache).
+     * Deve ser chamado na thread do mundo.
+     *
+     * @param maxSections Quantidade máxima de seções copiadas.
+     * @return A cópia, ou null se a caixa exigir mais seções que o limite.
+     */
+    @Nullable
+    public static PathRegionSnapshot capture(ServerWorld world, WalkabilityCache walkability, int minX, int minY, int minZ, int maxX, int maxY, int maxZ, int maxSections) {
+        int minSectionY = Math.max(minY >> 4, world.getBottomSectionCoord());
+        int maxSectionY = Math.min(maxY >> 4, world.getTopSectionCoord() - 1);
+        int sizeX = (maxX >> 4) - (minX >> 4) + 1;
+        int sizeY = maxSectionY - minSectionY + 1;
+        int sizeZ = (maxZ >> 4) - (minZ >> 4) + 1;
+        if (sizeY <= 0 || sizeX * sizeY * sizeZ > maxSections) {
+            return null;
+        }
+
+        PathRegionSnapshot snapshot = new PathRegionSnapshot(minX >> 4, minSectionY, minZ >> 4, sizeX, sizeY, sizeZ);
+        for (int sx = 0; sx < sizeX; sx++) {
+            for (int sz = 0; sz < sizeZ; sz++) {
+                for (int sy = 0; sy < sizeY; sy++) {
+                    int sectionX = snapshot.minSectionX + sx;
+                    int sectionY = minSectionY + sy;
+                    int sectionZ = snapshot.minSectionZ + sz;
+                    // O plano "em pé" primeiro: calculá-lo pode consultar (e carregar no cache) as seções vizinhas
+                    long[] standablePlane = walkability.getStandablePlane(sectionX, sectionY, sectionZ);
+                    SectionWalkabilityBitmap bitmap = walkability.get(sectionX, sectionY, sectionZ);
+                    if (standablePlane == null || bitmap == null) {
+                        continue;
+                    }
+                    // Os bitmaps do cache mudam a cada bloco alterado: a cópia não pode compartilhá-los
+                    int index = snapshot.index(sx, sy, sz);
+                    snapshot.passable[index] = bitmap.passable.clone();
+                    snapshot.solid[index] = bitmap.solid.clone();
+                    snapshot.standable[index] = standablePlane.clone();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private int index(int sx, int sy, int sz) {
+        return (sx * sizeZ + sz) * sizeY + sy;
+    }
+
+    /**
+     * @return O índice da seção da posição, ou -1 se fora da região.
+     */
+    private int sectionIndex(int x, int y, int z) {
+        int sx = (x >> 4) - minSectionX;
+        int sy = (y >> 4) - minSectionY;
+        int sz = (z >> 4) - minSectionZ;
+        if (sx < 0 || sy < 0 || sz < 0 || sx >= sizeX || sy >= sizeY || sz >= sizeZ) {
+            return -1;
+        }
+        return index(sx, sy, sz);
+    }
+
+    private static boolean test(long[][] planes, int section, int x, int y, int z) {
+        if (section < 0) {
+            return false;
+        }
+        long[] plane = planes[section];
+        return plane != null && SectionWalkabilityBitmap.test(plane, SectionWalkabilityBitmap.index(x, y, z));
+    }
+
+    // --- GroundMovement.Terrain ---
+
+    @Override
+    public boolean isOpen(int x, int y, int z) {
+        return test(passable, sectionIndex(x, y, z), x, y, z);
+    }
+
+    @Override
+    public boolean isFloor(int x, int y, int z) {
+        return test(solid, sectionIndex(x, y, z), x, y, z);
+    }
+
+    @Override
+    public boolean canStand(int x, int y, int z) {
+        return test(standable, sectionIndex(x, y, z), x, y, z);
+    }
+}
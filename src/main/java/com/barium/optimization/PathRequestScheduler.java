@@ -0,0 +1,177 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.entity.player.PlayerEntity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Fila de pedidos de rota de um mundo, com orçamento de tempo por tick.
+ * Cada busca A* concedida é cronometrada e o custo médio estima quantas ainda cabem no tick.
+ * Pedidos acima do orçamento são adiados: ficam na fila e, no início do próximo tick, os de maior prioridade
+ * (mais perto de um jogador, rota atual mais antiga e mais tempo esperando) recebem orçamento reservado.
+ * Um mínimo de pedidos por tick é sempre concedido para que a fila nunca pare.
+ * Usado apenas na thread do mundo.
+ */
+public class PathRequestScheduler {
+
+    // Peso de cada novo custo medido na média móvel
+    private static final double COST_SMOOTHING = 0.1;
+    // Custo inicial estimado de uma busca (0,2 ms), antes de qualquer medição
+    private static final double INITIAL_COST_NANOS = 200_000.0;
+    // Idade máxima (em ticks) considerada para a rota atual; mobs sem rota recebem esse valor
+    private static final int MAX_STALENESS_TICKS = 400;
+    // Pontos de prioridade por tick de espera (garante que pedidos distantes também sejam atendidos)
+    private static final int WAIT_WEIGHT = 4;
+    // Pedidos não repetidos por este tempo saem da fila (o objetivo do mob mudou ou ele foi removido)
+    private static final int EXPIRE_TICKS = 40;
+    // Limite de pedidos na fila
+    private static final int MAX_WAITING = 1024;
+
+    private final Int2ObjectOpenHashMap<WaitingRequest> waiting = new Int2ObjectOpenHashMap<>();
+    // Pedidos com orçamento reservado neste tick
+    private final IntOpenHashSet admitted = new IntOpenHashSet();
+    // Tick da última rota calculada para cada entidade
+    private final Int2LongOpenHashMap lastPathTick = new Int2LongOpenHashMap();
+
+    private long tick;
+    private long budgetNanos;
+    private int minRequests;
+    private long spentNanos;
+    private int grantedThisTick;
+    private double averageCostNanos = INITIAL_COST_NANOS;
+
+    public PathRequestScheduler() {
+        this.lastPathTick.defaultReturnValue(Long.MIN_VALUE);
+    }
+
+    /**
+     * Inicia um novo tick: zera o orçamento e reserva parte dele para os pedidos adiados de maior prioridade.
+     *
+     * @param time O tempo atual do mundo.
+     * @param budgetNanos O orçamento de tempo de busca do tick.
+     * @param minRequests Pedidos concedidos mesmo sem orçamento.
+     */
+    public void onTickStart(long time, long budgetNanos, int minRequests) {
+        this.tick = time;
+        this.budgetNanos = budgetNanos;
+        this.minRequests = minRequests;
+        this.spentNanos = 0;
+        this.grantedThisTick = 0;
+        this.admitted.clear();
+        if (waiting.isEmpty()) {
+            return;
+        }
+
+        waiting.values().removeIf(request -> time - request.lastRequestTick > EXPIRE_TICKS);
+        List<WaitingRequest> queue = new ArrayList<>(waiting.values());
+        for (WaitingRequest request : queue) {
+            request.score = score(request);
+        }
+        queue.sort(Comparator.comparingDouble((WaitingRequest request) -> request.score).reversed());
+
+        double reserved = 0;
+        for (WaitingRequest request : queue) {
+            if (admitted.size() >= minRequests && reserved + averageCostNanos > budgetNanos) {
+                break;
+            }
+            admitted.add(request.entityId);
+            reserved += averageCostNanos;
+        }
+    }
+
+    /**
+     * Decide se a busca de rota da entidade pode rodar agora.
+     * Se não puder, o pedido entra (ou continua) na fila para os próximos ticks.
+     *
+     * @param entity A entidade que pediu a rota.
+     * @param currentPath A rota que a entidade está seguindo (ou null).
+     * @return true se a busca foi concedida; o chamador deve informar o custo com {@link #onRequestFinished}.
+     */
+    public boolean tryAcquire(MobEntity entity, Path currentPath) {
+        int entityId = entity.getId();
+        if (admitted.remove(entityId)) {
+            return grant(entityId);
+        }
+        // Pedidos novos só usam o orçamento que não foi reservado para a fila
+        double reserved = admitted.size() * averageCostNanos;
+        if (grantedThisTick + admitted.size() < minRequests || spentNanos + reserved + averageCostNanos <= budgetNanos) {
+            return grant(entityId);
+        }
+
+        WaitingRequest request = waiting.get(entityId);
+        if (request == null) {
+            if (waiting.size() >= MAX_WAITING) {
+                return false;
+            }
+            request = new WaitingRequest(entityId, tick);
+            waiting.put(entityId, request);
+        }
+        PlayerEntity player = entity.getWorld().getClosestPlayer(entity, -1.0D);
+        request.playerDistance = player != null ? Math.sqrt(entity.squaredDistanceTo(player)) : Double.MAX_VALUE;
+        request.hasPath = currentPath != null && !currentPath.isFinished();
+        request.lastRequestTick = tick;
+        return false;
+    }
+
+    /**
+     * Registra o custo de uma busca concedida.
+     *
+     * @param entityId A entidade.
+     * @param nanos O tempo gasto.
+     */
+    public void onRequestFinished(int entityId, long nanos) {
+        spentNanos += nanos;
+        averageCostNanos += COST_SMOOTHING * (nanos - averageCostNanos);
+        lastPathTick.put(entityId, tick);
+    }
+
+    /**
+     * Descarta o estado de uma entidade removida.
+     */
+    public void remove(int entityId) {
+        waiting.remove(entityId);
+        admitted.remove(entityId);
+        lastPathTick.remove(entityId);
+    }
+
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+
+    private boolean grant(int entityId) {
+        waiting.remove(entityId);
+        grantedThisTick++;
+        return true;
+    }
+
+    private double score(WaitingRequest request) {
+        long last = lastPathTick.get(request.entityId);
+        long staleness = !request.hasPath || last == Long.MIN_VALUE ? MAX_STALENESS_TICKS : Math.min(tick - last, MAX_STALENESS_TICKS);
+        // Sem jogador no mundo: só a idade e a espera contam
+        double distance = request.playerDistance == Double.MAX_VALUE ? 0 : request.playerDistance;
+        return staleness + WAIT_WEIGHT * (tick - request.firstTick) - distance;
+    }
+
+    // --- Pedido adiado ---
+
+    private static class WaitingRequest {
+        final int entityId;
+        final long firstTick;
+        long lastRequestTick;
+        double playerDistance;
+        boolean hasPath;
+        double score;
+
+        WaitingRequest(int entityId, long firstTick) {
+            this.entityId = entityId;
+            this.firstTick = firstTick;
+        }
+    }
+}
@@ -5,18 +5,30 @@ import com.barium.config.BariumConfig;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.mob.MobEntity;
 import net.minecraft.entity.ai.pathing.EntityNavigation;
+import net.minecraft.entity.ai.pathing.MobNavigation;
 import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.ai.pathing.PathNode;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Otimiza o pathfinding de mobs para reduzir o impacto no desempenho.
  * Utiliza caching de rotas e atualizações menos frequentes para mobs distantes.
+ * Os caches não expiram por tempo: cada entrada guarda as versões das seções de chunk das quais
+ * depende (ChunkSectionVersions) e continua válida até que um bloco nessas seções mude.
  * Baseado nos mappings Yarn 1.21.5+build.1
  */
 public class PathfindingOptimizer {
@@ -24,11 +36,9 @@ public class PathfindingOptimizer {
     // Cache para rotas calculadas recentemente
     // Usamos WeakHashMap para permitir que as entidades sejam coletadas pelo GC
     private static final Map<MobEntity, PathCacheEntry> PATH_CACHE = new WeakHashMap<>();
-    private static final long CACHE_DURATION_MS = 5000; // Cache válido por 5 segundos
 
-    // Cache para verificações de colisão simplificadas (mobs em repouso)
-    private static final Map<MobEntity, CollisionCacheEntry> COLLISION_CACHE = new WeakHashMap<>();
-    private static final long COLLISION_CACHE_DURATION_MS = 1000; // Cache válido por 1 segundo
+    // Estado por mundo: versões das seções de chunk e cache de rotas compartilhado entre mobs
+    private static final Map<ServerWorld, WorldPathState> WORLD_STATES = new ConcurrentHashMap<>();
 
     // Limite de distância para otimizações mais agressivas
     private static final double FAR_MOB_DISTANCE_SQ = BariumConfig.PATH_UPDATE_DISTANCE * BariumConfig.PATH_UPDATE_DISTANCE; // Use config
@@ -36,6 +46,44 @@ public class PathfindingOptimizer {
     // Frequência de atualização para mobs distantes (em ticks)
     private static final int FAR_MOB_UPDATE_INTERVAL = BariumConfig.PATH_UPDATE_INTERVAL_TICKS; // Use config
 
+    // Margem (em blocos) da região copiada em volta da partida e do alvo de uma rota assíncrona
+    private static final int ASYNC_HORIZONTAL_MARGIN = 8;
+    private static final int ASYNC_VERTICAL_MARGIN = 4;
+    // Limite de seções copiadas por pedido; regiões maiores usam o pathfinding vanilla
+    private static final int ASYNC_MAX_SNAPSHOT_SECTIONS = 64;
+    // Limite de chaves aguardando o pathfinding vanilla (descartadas se nunca forem pedidas de novo)
+    private static final int MAX_SYNC_FALLBACK_KEYS = 1024;
+
+    /**
+     * Chamado no início de ServerWorld.tick: renova o orçamento de buscas de rota e entrega as rotas assíncronas
+     * concluídas ao cache compartilhado, de onde os mobs as recebem no próximo pedido de rota.
+     *
+     * @param world O mundo do servidor.
+     */
+    public static void onWorldTickStart(ServerWorld world) {
+        WorldPathState state = WORLD_STATES.get(world);
+        if (state == null) {
+            return;
+        }
+        state.sectionGraph.resetBuildBudget(BariumConfig.SECTION_GRAPH_BUILDS_PER_TICK);
+        state.pathScheduler.onTickStart(world.getTime(), BariumConfig.PATH_REQUEST_BUDGET_MICROS * 1000L, BariumConfig.MIN_PATH_REQUESTS_PER_TICK);
+
+        AsyncPathResult result;
+        while ((result = state.completedPaths.poll()) != null) {
+            state.pendingPaths.remove(result.key());
+            if (result.path() != null) {
+                // Carimbo da cópia: mudanças de bloco durante o cálculo invalidam a rota
+                state.sharedPaths.put(result.key(), result.path(), result.stamp());
+            } else {
+                // O A* simplificado não encontrou rota: o próximo pedido usa o pathfinding vanilla
+                if (state.syncFallback.size() >= MAX_SYNC_FALLBACK_KEYS) {
+                    state.syncFallback.clear();
+                }
+                state.syncFallback.add(result.key());
+            }
+        }
+    }
+
     /**
      * Tenta obter uma rota do cache antes de calcular uma nova.
      *
@@ -50,7 +98,8 @@ public class PathfindingOptimizer {
         }
 
         PathCacheEntry entry = PATH_CACHE.get(entity);
-        if (entry != null && entry.isValid(target, range)) {
+        WorldPathState state = WORLD_STATES.get(entity.getWorld());
+        if (entry != null && state != null && entry.isValid(target, range, state.sectionVersions)) {
             BariumMod.LOGGER.debug("Path cache hit for entity {}", entity.getId());
             return entry.path;
         }
@@ -70,12 +119,282 @@ public class PathfindingOptimizer {
             return;
         }
 
-        if (path != null) {
-            PATH_CACHE.put(entity, new PathCacheEntry(target, range, path));
+        if (path != null && entity.getWorld() instanceof ServerWorld world) {
+            PATH_CACHE.put(entity, new PathCacheEntry(target, range, path, getOrCreateState(world).sectionVersions.getStamp()));
             BariumMod.LOGGER.debug("Path cached for entity {}", entity.getId());
         }
     }
 
+    /**
+     * Procura no cache compartilhado uma rota calculada por outro mob do mesmo tipo, partindo
+     * da mesma região em direção ao mesmo alvo, e a emenda à posição atual da entidade.
+     *
+     * @param entity A entidade que está navegando.
+     * @param navigation A navegação da entidade.
+     * @param target A posição alvo.
+     * @param range O alcance extra da busca em torno do alvo.
+     * @param useHeadPos Se a busca parte da posição da cabeça.
+     * @param distance A distância do alvo considerada suficiente.
+     * @param followRange O alcance máximo da busca.
+     * @return Uma rota própria da entidade, ou null se não houver rota compartilhada utilizável.
+     */
+    public static Path getSharedPath(MobEntity entity, EntityNavigation navigation, BlockPos target, int range, boolean useHeadPos, int distance, float followRange) {
+        if (!BariumConfig.ENABLE_PATHFINDING_OPTIMIZATION || !BariumConfig.USE_SHARED_PATH_CACHE) {
+            return null;
+        }
+        WorldPathState state = WORLD_STATES.get(entity.getWorld());
+        if (state == null) {
+            return null;
+        }
+
+        BlockPos start = entity.getBlockPos();
+        Path path = state.sharedPaths.get(SharedPathCache.key(entity, navigation, useHeadPos ? start.up() : start, target, range, distance, followRange),
+                start, state.sectionVersions);
+        if (path != null) {
+            BariumMod.LOGGER.debug("Shared path cache hit for entity {}", entity.getId());
+        }
+        return path;
+    }
+
+    /**
+     * Armazena no cache compartilhado uma rota recém-calculada.
+     *
+     * @param entity A entidade.
+     * @param navigation A navegação da entidade.
+     * @param target A posição alvo.
+     * @param range O alcance extra da busca em torno do alvo.
+     * @param useHeadPos Se a busca partiu da posição da cabeça.
+     * @param distance A distância do alvo considerada suficiente.
+     * @param followRange O alcance máximo da busca.
+     * @param path O Path calculado.
+     */
+    public static void cacheSharedPath(MobEntity entity, EntityNavigation navigation, BlockPos target, int range, boolean useHeadPos, int distance, float followRange, Path path) {
+        if (!BariumConfig.ENABLE_PATHFINDING_OPTIMIZATION || !BariumConfig.USE_SHARED_PATH_CACHE || !(entity.getWorld() instanceof ServerWorld world)) {
+            return;
+        }
+
+        BlockPos start = useHeadPos ? entity.getBlockPos().up() : entity.getBlockPos();
+        WorldPathState state = getOrCreateState(world);
+        state.sharedPaths.put(SharedPathCache.key(entity, navigation, start, target, range, distance, followRange), path, state.sectionVersions.getStamp());
+    }
+
+    /**
+     * Pede orçamento para uma busca de rota (PathRequestScheduler). Sem orçamento no tick, o pedido fica
+     * na fila do mundo e é priorizado nos próximos ticks.
+     *
+     * @param entity A entidade que está navegando.
+     * @param navigation A navegação da entidade.
+     * @return true se a busca pode rodar agora; nesse caso o custo deve ser informado com onPathRequestFinished.
+     */
+    public static boolean acquirePathRequest(MobEntity entity, EntityNavigation navigation) {
+        if (!BariumConfig.ENABLE_PATHFINDING_OPTIMIZATION || !BariumConfig.ENABLE_PATH_REQUEST_BUDGET
+                || !(entity.getWorld() instanceof ServerWorld world)) {
+            return true;
+        }
+        return getOrCreateState(world).pathScheduler.tryAcquire(entity, navigation.getCurrentPath());
+    }
+
+    /**
+     * Registra o tempo gasto em uma busca concedida por acquirePathRequest.
+     *
+     * @param entity A entidade.
+     * @param nanos O tempo gasto na busca.
+     */
+    public static void onPathRequestFinished(MobEntity entity, long nanos) {
+        WorldPathState state = WORLD_STATES.get(entity.getWorld());
+        if (state != null) {
+            state.pathScheduler.onRequestFinished(entity.getId(), nanos);
+        }
+    }
+
+    /**
+     * Para alvos distantes, planeja a rota no grafo de seções (SectionConnectivityGraph) e devolve um ponto
+     * intermediário na entrada da seção depois da próxima; a rota fina é calculada só até ele.
+     *
+     * @param entity A entidade que está navegando.
+     * @param navigation A navegação da entidade.
+     * @param target O alvo final.
+     * @return O ponto intermediário, ou null se a rota deve ser calculada direto até o alvo.
+     */
+    public static BlockPos getHierarchicalWaypoint(MobEntity entity, EntityNavigation navigation, BlockPos target) {
+        if (!BariumConfig.ENABLE_PATHFINDING_OPTIMIZATION || !BariumConfig.ENABLE_HIERARCHICAL_PATHFINDING
+                || !(entity.getWorld() instanceof ServerWorld world) || !isSimpleGroundMob(entity, navigation)) {
+            return null;
+        }
+        BlockPos start = entity.getBlockPos();
+        int dx = target.getX() - start.getX();
+        int dz = target.getZ() - start.getZ();
+        int minDistance = BariumConfig.HIERARCHICAL_PATH_MIN_DISTANCE;
+        if (dx * dx + dz * dz < minDistance * minDistance) {
+            return null;
+        }
+        WorldPathState state = getOrCreateState(world);
+        return state.sectionGraph.findWaypoint(world, state.walkability, start, target);
+    }
+
+    /**
+     * Troca o alvo de uma rota parcial (até um ponto intermediário) pelo alvo final, para que a navegação
+     * continue reconhecendo o alvo e só replaneje quando o trecho terminar.
+     * A rota só é marcada como não alcançando o alvo se o próprio trecho não alcança o ponto intermediário:
+     * para mobs com cérebro uma rota que não alcança o alvo grava CANT_REACH_WALK_TARGET_SINCE, e aldeões
+     * desistiriam de camas e postos de trabalho distantes a cada trecho.
+     *
+     * @param leg A rota até o ponto intermediário.
+     * @param target O alvo final.
+     * @return Uma nova rota com os mesmos nós.
+     */
+    public static Path retarget(Path leg, BlockPos target) {
+        List<PathNode> nodes = new ArrayList<>(leg.getLength());
+        for (int i = 0; i < leg.getLength(); i++) {
+            nodes.add(leg.getNode(i));
+        }
+        return new Path(nodes, target, leg.reachesTarget());
+    }
+
+    /**
+     * Rota provisória para uma busca adiada (sem orçamento no tick ou calculada fora da thread): um único nó na
+     * posição do mob, marcada como alcançando o alvo. A navegação termina nela de imediato e o mob pede a rota
+     * de novo no próximo tick, sem que uma resposta null seja lida como alvo inalcançável (mobs com cérebro
+     * gravariam CANT_REACH_WALK_TARGET_SINCE). Com menos de 2 nós ela nunca entra no cache compartilhado.
+     *
+     * @param entity A entidade que está navegando.
+     * @param target O alvo da busca.
+     * @return A rota provisória.
+     */
+    public static Path createDeferredPath(MobEntity entity, BlockPos target) {
+        BlockPos pos = entity.getBlockPos();
+        List<PathNode> nodes = new ArrayList<>(1);
+        nodes.add(new PathNode(pos.getX(), pos.getY(), pos.getZ()));
+        return new Path(nodes, target, true);
+    }
+
+    // Mobs cobertos pelas regras de GroundMovement: a pé, uma coluna de largura e até 2 blocos de altura
+    private static boolean isSimpleGroundMob(MobEntity entity, EntityNavigation navigation) {
+        return navigation.getClass() == MobNavigation.class && entity.getWidth() < 1.0f && entity.getHeight() <= 2.0f
+                && !entity.hasVehicle() && !entity.isTouchingWater();
+    }
+
+    /**
+     * Pede o cálculo assíncrono da rota, se a entidade for elegível (mob terrestre pequeno com MobNavigation).
+     * A rota fica disponível no cache compartilhado em um tick posterior; enquanto isso a entidade fica na rota provisória (createDeferredPath).
+     *
+     * @param entity A entidade que está navegando.
+     * @param navigation A navegação da entidade.
+     * @param target A posição alvo.
+     * @param range Margem extra da região de busca (a mesma do ChunkCache vanilla).
+     * @param useHeadPos Se a busca parte da posição da cabeça.
+     * @param distance A distância do alvo considerada suficiente.
+     * @param followRange O alcance máximo da busca.
+     * @return true se há um pedido em andamento para a busca (o chamador deve devolver a rota provisória);
+     *         false se a rota deve ser calculada de forma síncrona.
+     */
+    public static boolean requestAsyncPath(MobEntity entity, EntityNavigation navigation, BlockPos target, int range, boolean useHeadPos, int distance, float followRange) {
+        if (!BariumConfig.ENABLE_PATHFINDING_OPTIMIZATION || !BariumConfig.USE_SHARED_PATH_CACHE || !BariumConfig.ENABLE_ASYNC_PATHFINDING
+                || !(entity.getWorld() instanceof ServerWorld world)) {
+            return false;
+        }
+        if (!isSimpleGroundMob(entity, navigation) || !entity.isOnGround()) {
+            return false;
+        }
+
+        WorldPathState state = getOrCreateState(world);
+        BlockPos start = entity.getBlockPos();
+        SharedPathCache.Key key = SharedPathCache.key(entity, navigation, useHeadPos ? start.up() : start, target, range, distance, followRange);
+        if (state.syncFallback.remove(key)) {
+            return false;
+        }
+        if (state.pendingPaths.contains(key)) {
+            return true;
+        }
+        if (state.pendingPaths.size() >= BariumConfig.MAX_PENDING_ASYNC_PATHS) {
+            return false;
+        }
+
+        // Mesma região que o vanilla usaria, reduzida à caixa entre a partida e o alvo
+        int reach = (int) followRange + range;
+        PathRegionSnapshot snapshot = PathRegionSnapshot.capture(world, state.walkability,
+                Math.max(Math.min(start.getX(), target.getX()) - ASYNC_HORIZONTAL_MARGIN, start.getX() - reach),
+                Math.max(Math.min(start.getY(), target.getY()) - ASYNC_VERTICAL_MARGIN, start.getY() - reach),
+                Math.max(Math.min(start.getZ(), target.getZ()) - ASYNC_HORIZONTAL_MARGIN, start.getZ() - reach),
+                Math.min(Math.max(start.getX(), target.getX()) + ASYNC_HORIZONTAL_MARGIN, start.getX() + reach),
+                Math.min(Math.max(start.getY(), target.getY()) + ASYNC_VERTICAL_MARGIN, start.getY() + reach),
+                Math.min(Math.max(start.getZ(), target.getZ()) + ASYNC_HORIZONTAL_MARGIN, start.getZ() + reach),
+                ASYNC_MAX_SNAPSHOT_SECTIONS);
+        if (snapshot == null) {
+            return false;
+        }
+
+        long stamp = state.sectionVersions.getStamp();
+        Queue<AsyncPathResult> completed = state.completedPaths;
+        boolean submitted = AsyncPathfinder.submit(snapshot, start, target, distance, (int) (followRange * 16),
+                path -> completed.add(new AsyncPathResult(key, path, stamp)));
+        if (!submitted) {
+            return false;
+        }
+        state.pendingPaths.add(key);
+        return true;
+    }
+
+    /**
+     * Registra uma mudança de bloco: avança a versão da seção, invalidando as entradas de cache que dependem dela.
+     *
+     * @param world O mundo.
+     * @param pos A posição do bloco alterado.
+     */
+    public static void onBlockChanged(World world, BlockPos pos) {
+        // Sem estado no mundo, ainda não há entradas de cache que dependam da seção
+        WorldPathState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.sectionVersions.onBlockChanged(pos);
+            state.sectionGraph.onBlockChanged(pos);
+            state.walkability.onBlockChanged(pos);
+        }
+    }
+
+    /**
+     * Descarta as versões das seções de um chunk descarregado.
+     *
+     * @param world O mundo.
+     * @param pos O chunk descarregado.
+     */
+    public static void onChunkUnloaded(ServerWorld world, ChunkPos pos) {
+        WorldPathState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.sectionVersions.onChunkUnloaded(pos, world.getBottomSectionCoord(), world.getTopSectionCoord());
+            state.sectionGraph.onChunkUnloaded(pos, world.getBottomSectionCoord(), world.getTopSectionCoord());
+            state.walkability.onChunkUnloaded(pos, world.getBottomSectionCoord(), world.getTopSectionCoord());
+        }
+    }
+
+    /**
+     * Limpa o estado associado a um mundo (ex: quando o mundo é descarregado).
+     *
+     * @param world O mundo.
+     */
+    public static void clearWorldState(ServerWorld world) {
+        WORLD_STATES.remove(world);
+    }
+
+    /**
+     * Limpa o estado de uma entidade (ex: quando removida).
+     *
+     * @param entity A entidade.
+     */
+    public static void clearEntityState(Entity entity) {
+        World world = entity.getWorld();
+        if (world == null || world.isClient()) {
+            return;
+        }
+        WorldPathState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.pathScheduler.remove(entity.getId());
+        }
+    }
+
+    private static WorldPathState getOrCreateState(ServerWorld world) {
+        return WORLD_STATES.computeIfAbsent(world, WorldPathState::new);
+    }
+
     /**
      * Verifica se a entidade deve ter seu pathfinding atualizado com menos frequência.
      *
@@ -106,6 +425,8 @@ public class PathfindingOptimizer {
 
     /**
      * Realiza uma verificação de colisão simplificada para mobs em repouso.
+     * Consulta os bitmaps de walkability das seções (WalkabilityCache), mantidos atualizados a cada mudança
+     * de bloco: não há mais cache por entidade nem leitura de BlockState por chamada.
      *
      * @param entity A entidade.
      * @return true se a entidade provavelmente não colidiu (baseado no cache ou verificação simples).
@@ -118,66 +439,66 @@ public class PathfindingOptimizer {
         // Verifica se a entidade está se movendo significativamente
         Vec3d velocity = entity.getVelocity();
         if (velocity.lengthSquared() > 0.01) { // Limiar pequeno para detectar movimento
-            COLLISION_CACHE.remove(entity); // Remove do cache se começou a mover
             return false; // Movendo, precisa de verificação completa
         }
 
-        // Verifica o cache de colisão
-        CollisionCacheEntry entry = COLLISION_CACHE.get(entity);
-        if (entry != null && entry.isValid(entity.getBlockPos())) {
-            return entry.canMove; // Retorna resultado do cache
+        // Os bitmaps existem apenas no mundo do servidor
+        if (!(entity.getWorld() instanceof ServerWorld world)) {
+            return false;
         }
+        WalkabilityCache walkability = getOrCreateState(world).walkability;
 
-        // Realiza uma verificação simplificada (ex: apenas blocos adjacentes)
-        // Esta é uma lógica placeholder, uma implementação real seria mais complexa
-        World world = entity.getWorld();
         BlockPos currentPos = entity.getBlockPos();
-        boolean canMove = world.getBlockState(currentPos.down()).isAir() || // Pode cair?
-                          world.getBlockState(currentPos).isAir(); // Está no ar?
+        return walkability.isOpen(currentPos.getX(), currentPos.getY() - 1, currentPos.getZ()) || // Pode cair?
+               walkability.isOpen(currentPos.getX(), currentPos.getY(), currentPos.getZ()); // Está no ar?
+    }
+
+    // --- Classes internas para o Cache ---
 
-        // Armazena no cache
-        COLLISION_CACHE.put(entity, new CollisionCacheEntry(currentPos, canMove));
+    private static class WorldPathState {
+        final ChunkSectionVersions sectionVersions = new ChunkSectionVersions();
+        final SharedPathCache sharedPaths = new SharedPathCache(BariumConfig.PATH_CACHE_SIZE);
+        // Grafo grosseiro de seções para rotas longas
+        final SectionConnectivityGraph sectionGraph = new SectionConnectivityGraph();
+        // Bitmaps sólido/passável/líquido por seção (colisão simplificada, grafo de seções e terreno do A* assíncrono)
+        final WalkabilityCache walkability;
+        // Fila e orçamento por tick das buscas de rota
+        final PathRequestScheduler pathScheduler = new PathRequestScheduler();
+        // Buscas com cálculo assíncrono em andamento (um pedido por chave, mesmo com vários mobs)
+        final Set<SharedPathCache.Key> pendingPaths = new HashSet<>();
+        // Buscas que o A* assíncrono não resolveu e devem usar o pathfinding vanilla
+        final Set<SharedPathCache.Key> syncFallback = new HashSet<>();
+        // Resultados entregues pelas threads de trabalho, drenados no início do tick do mundo
+        final Queue<AsyncPathResult> completedPaths = new ConcurrentLinkedQueue<>();
 
-        return canMove;
+        WorldPathState(ServerWorld world) {
+            this.walkability = new WalkabilityCache(world);
+        }
     }
 
-    // --- Classes internas para o Cache ---
+    private record AsyncPathResult(SharedPathCache.Key key, Path path, long stamp) {
+    }
 
     private static class PathCacheEntry {
         final BlockPos target;
         final float range;
         final Path path;
-        final long timestamp;
+        // Seções de chunk das quais a rota depende e o carimbo de versão da criação
+        final long[] sections;
+        final long stamp;
 
-        PathCacheEntry(BlockPos target, float range, Path path) {
+        PathCacheEntry(BlockPos target, float range, Path path, long stamp) {
             this.target = target;
             this.range = range;
             this.path = path;
-            this.timestamp = System.currentTimeMillis();
+            this.sections = SharedPathCache.collectSections(path);
+            this.stamp = stamp;
         }
 
-        boolean isValid(BlockPos currentTarget, float currentRange) {
+        boolean isValid(BlockPos currentTarget, float currentRange, ChunkSectionVersions versions) {
             return target.equals(currentTarget) &&
                    Math.abs(range - currentRange) < 0.1f &&
-                   (System.currentTimeMillis() - timestamp) < CACHE_DURATION_MS;
-        }
-    }
-
-    private static class CollisionCacheEntry {
-        final BlockPos position;
-        final boolean canMove;
-        final long timestamp;
-
-        CollisionCacheEntry(BlockPos position, boolean canMove) {
-            this.position = position;
-            this.canMove = canMove;
-            this.timestamp = System.currentTimeMillis();
-        }
-
-        boolean isValid(BlockPos currentPosition) {
-            return position.equals(currentPosition) &&
-                   (System.currentTimeMillis() - timestamp) < COLLISION_CACHE_DURATION_MS;
+                   versions.isUnchangedSince(sections, stamp);
         }
     }
 }
-
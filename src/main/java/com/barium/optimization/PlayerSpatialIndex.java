@@ -0,0 +1,121 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.List;
+
+/**
+ * Índice espacial das posições dos jogadores de um mundo.
+ * Os jogadores são agrupados em colunas (células XZ) com lado igual à maior distância
+ * usada pelos otimizadores, então qualquer jogador dentro desse raio está obrigatoriamente
+ * em uma das 9 células ao redor da entidade consultada.
+ * Deve ser reconstruído uma vez por tick do mundo (início de ServerWorld.tick).
+ */
+public class PlayerSpatialIndex {
+
+    private static final int NO_PLAYER = -1;
+
+    private final int cellSize;
+
+    // Célula -> índice do primeiro jogador da célula (lista encadeada através de 'next')
+    private final Long2IntOpenHashMap cellHeads = new Long2IntOpenHashMap();
+
+    // Posições copiadas no momento da reconstrução (evita acessar as entidades a cada consulta)
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private int[] next = new int[16];
+    private int count;
+    private boolean built;
+
+    /**
+     * @param cellSize Lado da célula em blocos. Deve ser >= à maior distância consultada.
+     */
+    public PlayerSpatialIndex(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+        this.cellHeads.defaultReturnValue(NO_PLAYER);
+    }
+
+    /**
+     * Reconstrói o índice a partir da lista atual de jogadores.
+     *
+     * @param players Os jogadores do mundo.
+     */
+    public void rebuild(List<? extends PlayerEntity> players) {
+        cellHeads.clear();
+        count = 0;
+        ensureCapacity(players.size());
+
+        for (PlayerEntity player : players) {
+            int i = count++;
+            xs[i] = player.getX();
+            ys[i] = player.getY();
+            zs[i] = player.getZ();
+            // put() devolve o antigo primeiro da célula (ou NO_PLAYER), que vira o próximo deste
+            next[i] = cellHeads.put(cellKey(xs[i], zs[i]), i);
+        }
+        built = true;
+    }
+
+    /**
+     * @return true se o índice já foi construído ao menos uma vez.
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Retorna a menor distância quadrada entre o ponto e um jogador.
+     * Jogadores a mais de {@code cellSize} blocos podem ser ignorados, nesse caso
+     * o resultado é {@link Double#MAX_VALUE} (tão longe quanto qualquer limite usado).
+     *
+     * @return A menor distância quadrada, ou Double.MAX_VALUE se não houver jogador próximo.
+     */
+    public double nearestSquaredDistance(double x, double y, double z) {
+        if (count == 0) {
+            return Double.MAX_VALUE;
+        }
+
+        int cellX = cellCoord(x);
+        int cellZ = cellCoord(z);
+        double best = Double.MAX_VALUE;
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                int i = cellHeads.get(ChunkPos.toLong(cellX + dx, cellZ + dz));
+                while (i != NO_PLAYER) {
+                    double ddx = xs[i] - x;
+                    double ddy = ys[i] - y;
+                    double ddz = zs[i] - z;
+                    double distanceSq = ddx * ddx + ddy * ddy + ddz * ddz;
+                    if (distanceSq < best) {
+                        best = distanceSq;
+                    }
+                    i = next[i];
+                }
+            }
+        }
+        return best;
+    }
+
+    private long cellKey(double x, double z) {
+        return ChunkPos.toLong(cellCoord(x), cellCoord(z));
+    }
+
+    private int cellCoord(double value) {
+        return MathHelper.floor(value / cellSize);
+    }
+
+    private void ensureCapacity(int size) {
+        if (xs.length < size) {
+            int capacity = Math.max(size, xs.length * 2);
+            xs = new double[capacity];
+            ys = new double[capacity];
+            zs = new double[capacity];
+            next = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.barium.optimization;
+
+import com.barium.BariumMod;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.Arrays;
+
+/**
+ * Detecção de máquinas de lag de redstone de um mundo. Conta as atualizações de vizinhos vindas de componentes
+ * de redstone entregues em cada chunk numa janela móvel de WINDOW_TICKS ticks. Um chunk que passa do orçamento por
+ * tick em pelo menos SUSTAINED_TICKS ticks da janela (relógios rápidos, não uma porta de pistão que dispara uma vez)
+ * é limitado por um período: enquanto limitado, só recebe uma fração do orçamento por tick e o excesso é adiado
+ * (RedstoneOptimizer o coloca na fila do mundo e o entrega em ticks seguintes), o que desacelera ou pausa o relógio
+ * sem perder atualizações. O chunk e as posições que mais receberam atualizações adiadas são relatados no log.
+ * O orçamento é por chunk: construções grandes espalhadas por vários chunks não são afetadas.
+ * Usado apenas na thread do mundo.
+ */
+public class RedstoneLagDetector {
+
+    // Janela móvel (ticks)
+    private static final int WINDOW_TICKS = 20;
+    // Ticks acima do orçamento dentro da janela para limitar o chunk
+    private static final int SUSTAINED_TICKS = 10;
+    // Um chunk limitado recebe 1/THROTTLED_DIVISOR do orçamento por tick
+    private static final int THROTTLED_DIVISOR = 8;
+    // Posições relatadas por chunk limitado e posições acompanhadas por chunk
+    private static final int REPORTED_POSITIONS = 5;
+    private static final int MAX_TRACKED_POSITIONS = 256;
+
+    private final int budgetPerTick;
+    private final int throttleTicks;
+    private final Long2ObjectOpenHashMap<ChunkLoad> chunks = new Long2ObjectOpenHashMap<>();
+    // Chunks limitados neste tick que ainda serão relatados no fim do tick
+    private final LongArrayList pendingReports = new LongArrayList();
+    // Último chunk consultado (atualizações costumam vir em sequência do mesmo chunk)
+    private long lastChunkKey;
+    private ChunkLoad lastLoad;
+    private long deferredTotal;
+
+    /**
+     * @param budgetPerTick Atualizações de vizinhos por chunk e por tick antes de contar como tick acima do orçamento.
+     * @param throttleTicks Duração da limitação de um chunk.
+     */
+    public RedstoneLagDetector(int budgetPerTick, int throttleTicks) {
+        this.budgetPerTick = budgetPerTick;
+        this.throttleTicks = throttleTicks;
+    }
+
+    /**
+     * Contabiliza uma atualização de vizinho no chunk do bloco atualizado.
+     *
+     * @param time O tempo atual do mundo.
+     * @param target O bloco atualizado.
+     * @return false se o chunk está limitado e já usou a fração do orçamento deste tick: a atualização deve ser adiada.
+     */
+    public boolean tryAcquire(long time, BlockPos target) {
+        long key = ChunkPos.toLong(target.getX() >> 4, target.getZ() >> 4);
+        ChunkLoad load = lastLoad != null && lastChunkKey == key ? lastLoad : chunks.get(key);
+        if (load == null) {
+            load = new ChunkLoad(time);
+            chunks.put(key, load);
+        }
+        lastChunkKey = key;
+        lastLoad = load;
+
+        load.advance(time, budgetPerTick);
+        if (load.throttledUntil > time) {
+            if (load.currentCount() >= Math.max(1, budgetPerTick / THROTTLED_DIVISOR)) {
+                deferredTotal++;
+                load.track(target.asLong());
+                return false;
+            }
+        } else if (load.throttledUntil != 0) {
+            // Fim da limitação: a próxima começa do zero
+            load.throttledUntil = 0;
+            load.offenders = null;
+        }
+
+        if (load.record(budgetPerTick) && load.overTicks >= SUSTAINED_TICKS && load.throttledUntil == 0) {
+            load.throttledUntil = time + throttleTicks;
+            load.offenders = new Long2IntOpenHashMap();
+            pendingReports.add(key);
+        }
+        return true;
+    }
+
+    /**
+     * Fim do tick do mundo: relata os chunks limitados neste tick e, a cada janela, descarta os chunks ociosos.
+     */
+    public void onTickEnd(ServerWorld world) {
+        long time = world.getTime();
+        for (int i = 0; i < pendingReports.size(); i++) {
+            long key = pendingReports.getLong(i);
+            ChunkLoad load = chunks.get(key);
+            if (load != null) {
+                report(world, key, load);
+                // Relatado uma vez por limitação
+                load.offenders = null;
+            }
+        }
+        pendingReports.clear();
+
+        if (time % WINDOW_TICKS == 0 && !chunks.isEmpty()) {
+            for (ObjectIterator<Long2ObjectMap.Entry<ChunkLoad>> iterator = chunks.long2ObjectEntrySet().fastIterator(); iterator.hasNext(); ) {
+                ChunkLoad load = iterator.next().getValue();
+                if (time - load.lastTime >= WINDOW_TICKS && load.throttledUntil <= time) {
+                    iterator.remove();
+                }
+            }
+            lastLoad = null;
+        }
+    }
+
+    /**
+     * Descarta a contagem de um chunk descarregado.
+     */
+    public void onChunkUnloaded(ChunkPos pos) {
+        long key = pos.toLong();
+        if (chunks.remove(key) != null && lastChunkKey == key) {
+            lastLoad = null;
+        }
+    }
+
+    /**
+     * @return true se o chunk está limitado.
+     */
+    public boolean isThrottled(long time, ChunkPos pos) {
+        ChunkLoad load = chunks.get(pos.toLong());
+        return load != null && load.throttledUntil > time;
+    }
+
+    public long getDeferredTotal() {
+        return deferredTotal;
+    }
+
+    private void report(ServerWorld world, long key, ChunkLoad load) {
+        BariumMod.LOGGER.warn("Possível máquina de lag de redstone no chunk [{}, {}] de {}: {} atualizações de vizinhos nos últimos {} ticks ({} ticks acima de {}). Chunk limitado por {} ticks.",
+                ChunkPos.getPackedX(key), ChunkPos.getPackedZ(key), world.getRegistryKey().getValue(),
+                load.windowTotal, WINDOW_TICKS, load.overTicks, budgetPerTick, throttleTicks);
+        if (load.offenders == null || load.offenders.isEmpty()) {
+            return;
+        }
+        ObjectArrayList<Long2IntMap.Entry> offenders = new ObjectArrayList<>(load.offenders.long2IntEntrySet());
+        offenders.sort((a, b) -> Integer.compare(b.getIntValue(), a.getIntValue()));
+        for (int i = 0; i < Math.min(REPORTED_POSITIONS, offenders.size()); i++) {
+            Long2IntMap.Entry entry = offenders.get(i);
+            BariumMod.LOGGER.warn("  {}: {} atualizações adiadas", BlockPos.fromLong(entry.getLongKey()).toShortString(), entry.getIntValue());
+        }
+    }
+
+    // --- Contagem por chunk ---
+
+    private static class ChunkLoad {
+        // Atualizações por tick da janela, indexadas por tempo % WINDOW_TICKS
+        final int[] counts = new int[WINDOW_TICKS];
+        long lastTime;
+        long windowTotal;
+        // Ticks da janela acima do orçamento
+        int overTicks;
+        // Tempo em que a limitação termina (0 se não limitado)
+        long throttledUntil;
+        // Posições com atualizações adiadas no tick em que a limitação começou -> quantidade
+        Long2IntOpenHashMap offenders;
+
+        ChunkLoad(long time) {
+            this.lastTime = time;
+        }
+
+        /**
+         * Avança a janela até o tempo atual, esquecendo os ticks que saíram dela.
+         */
+        void advance(long time, int budgetPerTick) {
+            if (time == lastTime) {
+                return;
+            }
+            if (time - lastTime >= WINDOW_TICKS || time < lastTime) {
+                Arrays.fill(counts, 0);
+                windowTotal = 0;
+                overTicks = 0;
+            } else {
+                for (long t = lastTime + 1; t <= time; t++) {
+                    int slot = (int) (t % WINDOW_TICKS);
+                    windowTotal -= counts[slot];
+                    if (counts[slot] > budgetPerTick) {
+                        overTicks--;
+                    }
+                    counts[slot] = 0;
+                }
+            }
+            lastTime = time;
+        }
+
+        int currentCount() {
+            return counts[(int) (lastTime % WINDOW_TICKS)];
+        }
+
+        /**
+         * Conta uma atualização no tick atual.
+         *
+         * @return true se o tick atual acabou de passar do orçamento.
+         */
+        boolean record(int budgetPerTick) {
+            int slot = (int) (lastTime % WINDOW_TICKS);
+            windowTotal++;
+            if (++counts[slot] == budgetPerTick + 1) {
+                overTicks++;
+                return true;
+            }
+            return false;
+        }
+
+        void track(long pos) {
+            if (offenders != null && (offenders.size() < MAX_TRACKED_POSITIONS || offenders.containsKey(pos))) {
+                offenders.addTo(pos, 1);
+            }
+        }
+    }
+}
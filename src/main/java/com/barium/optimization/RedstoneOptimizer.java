@@ -2,163 +2,321 @@ package com.barium.optimization;
 
 import com.barium.BariumMod;
 import com.barium.config.BariumConfig;
+import com.barium.util.BlockPosMap;
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
+import net.minecraft.block.PistonBlock;
+import net.minecraft.block.PistonExtensionBlock;
+import net.minecraft.block.PistonHeadBlock;
 import net.minecraft.block.RedstoneWireBlock;
+import net.minecraft.resource.featuretoggle.FeatureFlags;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
+import net.minecraft.world.block.WireOrientation;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayDeque;
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Queue;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Otimiza eventos de Redstone, limitando a propagação desnecessária e usando filas.
+ * Otimiza eventos de Redstone: calcula a potência de redes de fios de uma vez (RedstoneWireEngine),
+ * descarta atualizações de vizinhos redundantes dentro do tick (NeighborUpdateDeduplicator),
+ * limita chunks com excesso sustentado de atualizações (RedstoneLagDetector) e agrupa atualizações em filas.
+ *
+ * Todo o estado de agendamento é por ServerWorld (fila, motor de fios, redes compiladas, versões de seção),
+ * com ciclo de vida explícito: criado no primeiro uso, a fila é drenada no fim do tick do próprio mundo
+ * (onWorldTickEnd) e o estado é descartado quando o mundo é descarregado (clearWorldState).
+ * Cada mundo só toca o próprio estado, então dimensões diferentes não interferem entre si.
  * Baseado nos mappings Yarn 1.21.5+build.1
  */
 public class RedstoneOptimizer {
 
-    // Fila para atualizações de redstone compactadas
-    private static final Queue<RedstoneUpdate> UPDATE_QUEUE = new ArrayDeque<>();
     private static final int MAX_QUEUE_SIZE = 1024;
-    private static boolean processingQueue = false;
 
-    // Conjunto para evitar atualizações recursivas imediatas no mesmo tick
-    private static final Set<BlockPos> UPDATED_THIS_TICK = new HashSet<>();
+    // Estado por mundo: fila, motor de fios, redes compiladas, versões das seções e deduplicação de atualizações
+    private static final Map<ServerWorld, WorldRedstoneState> WORLD_STATES = new ConcurrentHashMap<>();
 
     /**
-     * Adiciona uma atualização de redstone à fila compactada em vez de processá-la imediatamente.
+     * Adiciona uma atualização de redstone à fila compactada do mundo em vez de processá-la imediatamente.
+     * Uma atualização para um bloco que já tem atualização pendente da mesma origem é absorvida por ela,
+     * que ainda vai ler o estado atual do mundo quando for entregue.
      *
      * @param world O mundo.
      * @param pos A posição do bloco que precisa ser atualizado.
-     * @param sourcePos A posição do bloco que causou a atualização.
-     * @return true se a atualização foi adicionada à fila, false se deve ser processada imediatamente.
+     * @param sourceBlock O bloco que causou a atualização.
+     * @return true se a atualização foi adicionada à fila (ou absorvida), false se deve ser processada imediatamente.
      */
-    public static boolean queueRedstoneUpdate(World world, BlockPos pos, BlockPos sourcePos) {
-        if (!BariumConfig.ENABLE_REDSTONE_OPTIMIZATION || !BariumConfig.USE_COMPACT_QUEUE) {
+    public static boolean queueRedstoneUpdate(World world, BlockPos pos, Block sourceBlock) {
+        if (!BariumConfig.ENABLE_REDSTONE_OPTIMIZATION || !BariumConfig.USE_COMPACT_QUEUE
+                || !(world instanceof ServerWorld serverWorld)) {
             return false; // Processamento normal
         }
+        return enqueue(serverWorld, getOrCreateState(serverWorld), pos, sourceBlock);
+    }
 
-        // Evita adicionar se já atualizou neste tick (prevenção de recursão simples)
-        if (UPDATED_THIS_TICK.contains(pos)) {
-            return true; // Já na fila ou processado
+    private static boolean enqueue(ServerWorld world, WorldRedstoneState state, BlockPos pos, Block sourceBlock) {
+        // Já há uma atualização pendente da mesma origem para o bloco
+        if (state.pendingUpdates.get(pos) == sourceBlock) {
+            return true;
         }
 
         // Adiciona à fila se não estiver cheia
-        if (UPDATE_QUEUE.size() < MAX_QUEUE_SIZE) {
-            UPDATE_QUEUE.offer(new RedstoneUpdate(world, pos, sourcePos));
-            UPDATED_THIS_TICK.add(pos);
+        if (state.updateQueue.size() < MAX_QUEUE_SIZE) {
+            offer(state, pos, sourceBlock);
             return true; // Adicionado à fila
         } else {
-            BariumMod.LOGGER.warn("Fila de atualização de Redstone cheia! Processando imediatamente.");
+            // Um aviso por tick
+            if (state.queueFullWarnedAt != world.getTime()) {
+                state.queueFullWarnedAt = world.getTime();
+                BariumMod.LOGGER.warn("Fila de atualização de Redstone cheia em {}! Processando imediatamente.", world.getRegistryKey().getValue());
+            }
             return false; // Fila cheia, processa normalmente
         }
     }
 
     /**
-     * Processa a fila de atualizações de redstone.
-     * Deve ser chamado no final do tick do servidor/mundo.
+     * Adia uma atualização de um chunk limitado (ver RedstoneLagDetector). Não respeita MAX_QUEUE_SIZE: com a fila
+     * cheia o excesso de uma máquina de lag grande voltaria a ser entregue na hora. A fila continua limitada porque
+     * as adiadas são agrupadas por posição e origem em pendingUpdates, e posições de chunks descarregados saem dela.
+     */
+    private static void enqueueDeferred(WorldRedstoneState state, BlockPos pos, Block sourceBlock) {
+        if (state.pendingUpdates.get(pos) != sourceBlock) {
+            offer(state, pos, sourceBlock);
+        }
+    }
+
+    private static void offer(WorldRedstoneState state, BlockPos pos, Block sourceBlock) {
+        BlockPos immutable = pos.toImmutable();
+        state.updateQueue.offer(new RedstoneUpdate(immutable, sourceBlock));
+        state.pendingUpdates.put(immutable, sourceBlock);
+    }
+
+    /**
+     * Fim do tick do mundo: drena a fila de atualizações do próprio mundo e relata os chunks limitados no tick.
      *
      * @param world O mundo.
      */
-    public static void processUpdateQueue(World world) {
-        if (processingQueue || UPDATE_QUEUE.isEmpty()) {
-            return;
+    public static void onWorldTickEnd(ServerWorld world) {
+        processUpdateQueue(world);
+        WorldRedstoneState state = WORLD_STATES.get(world);
+        if (state != null) {
+            state.lagDetector.onTickEnd(world);
         }
+    }
 
-        processingQueue = true;
-        UPDATED_THIS_TICK.clear(); // Limpa para o próximo tick
+    /**
+     * Processa a fila de atualizações de redstone do mundo, na ordem em que foram enfileiradas.
+     * Cada posição deixa de estar pendente no momento em que sua atualização é entregue. Só as atualizações
+     * presentes no início da passagem são entregues: as enfileiradas durante ela (ex: adiadas de novo por um chunk
+     * limitado, ver RedstoneLagDetector) ficam para o próximo tick.
+     *
+     * @param world O mundo.
+     */
+    public static void processUpdateQueue(ServerWorld world) {
+        WorldRedstoneState state = WORLD_STATES.get(world);
+        if (state == null || state.processingQueue || state.updateQueue.isEmpty()) {
+            return;
+        }
 
-        BariumMod.LOGGER.debug("Processando {} atualizações de redstone da fila.", UPDATE_QUEUE.size());
+        state.processingQueue = true;
+        boolean completed = false;
+        BariumMod.LOGGER.debug("Processando {} atualizações de redstone da fila de {}.", state.updateQueue.size(), world.getRegistryKey().getValue());
 
         try {
-            while (!UPDATE_QUEUE.isEmpty()) {
-                RedstoneUpdate update = UPDATE_QUEUE.poll();
-                if (update != null && update.world == world) { // Garante que é o mundo correto
-                    // Executa a atualização real do bloco
-                    // A lógica exata depende de como o vanilla lida com updates
-                    // Exemplo: notificar vizinhos ou recalcular estado
-                    BlockState state = world.getBlockState(update.pos);
-                    // Exemplo: world.updateNeighbor(update.pos, state.getBlock(), update.sourcePos);
-                    // Exemplo: state.neighborUpdate(world, update.pos, world.getBlockState(update.sourcePos).getBlock(), update.sourcePos, false);
-                    
-                    // Placeholder para a lógica real de atualização
-                    // Em um mod real, chamaríamos o método vanilla apropriado aqui
-                    // world.updateNeighborsAlways(update.pos, world.getBlockState(update.pos).getBlock());
+            int remaining = state.updateQueue.size();
+            RedstoneUpdate update;
+            while (remaining-- > 0 && (update = state.updateQueue.poll()) != null) {
+                if (state.pendingUpdates.get(update.pos) == update.sourceBlock) {
+                    state.pendingUpdates.remove(update.pos);
                 }
+                world.updateNeighbor(update.pos, update.sourceBlock, null);
             }
+            completed = true;
         } finally {
-            processingQueue = false;
-            // Limpa novamente em caso de erro
-            if (!UPDATE_QUEUE.isEmpty()) {
-                 BariumMod.LOGGER.error("Erro ao processar fila de redstone, limpando {} itens restantes.", UPDATE_QUEUE.size());
-                 UPDATE_QUEUE.clear();
+            state.processingQueue = false;
+            if (!completed) {
+                BariumMod.LOGGER.error("Erro ao processar fila de redstone, limpando {} itens restantes.", state.updateQueue.size());
+                state.updateQueue.clear();
+                state.pendingUpdates.clear();
             }
-            UPDATED_THIS_TICK.clear();
         }
     }
 
     /**
-     * Limita a propagação desnecessária de sinais de redstone.
-     * Verifica se a atualização realmente mudaria o estado do vizinho.
+     * Calcula a potência da rede de um fio com o RedstoneWireEngine em vez do cálculo vanilla fio a fio.
+     * Com os experimentos de redstone ativos o mundo usa outro controlador e o vanilla é mantido.
      *
      * @param world O mundo.
-     * @param pos A posição do bloco sendo atualizado.
-     * @param direction A direção do vizinho.
-     * @param currentState O estado atual do bloco.
-     * @return true se a propagação deve ser cancelada.
+     * @param pos A posição do fio atualizado.
+     * @param state O estado do fio.
+     * @param wire O bloco de fio.
+     * @return true se a atualização foi tratada e o cálculo vanilla deve ser cancelado.
      */
-    public static boolean limitRedstonePropagation(World world, BlockPos pos, Direction direction, BlockState currentState) {
-        if (!BariumConfig.ENABLE_REDSTONE_OPTIMIZATION || !BariumConfig.LIMIT_SIGNAL_PROPAGATION) {
+    public static boolean updateWire(World world, BlockPos pos, BlockState state, RedstoneWireBlock wire) {
+        if (!BariumConfig.ENABLE_REDSTONE_OPTIMIZATION || !BariumConfig.LIMIT_SIGNAL_PROPAGATION
+                || !(world instanceof ServerWorld serverWorld)
+                || world.getEnabledFeatures().contains(FeatureFlags.REDSTONE_EXPERIMENTS)) {
             return false;
         }
+        WorldRedstoneState redstoneState = getOrCreateState(serverWorld);
+        CompiledWireNetworks compiled = BariumConfig.COMPILE_REDSTONE_NETWORKS ? redstoneState.compiledNetworks : null;
+        return redstoneState.wireEngine.update(world, pos, state, wire, compiled);
+    }
 
-        BlockPos neighborPos = pos.offset(direction);
-        BlockState neighborState = world.getBlockState(neighborPos);
+    /**
+     * Decide se uma atualização de vizinho (World.updateNeighborsAlways / World.updateNeighbor) deve ser entregue,
+     * se é redundante dentro do tick (ver NeighborUpdateDeduplicator) ou se o chunk do bloco está limitado por
+     * excesso de atualizações (ver RedstoneLagDetector). Só atualizações não redundantes vindas de componentes de
+     * redstone contam no orçamento do chunk; as que passam da fração de um chunk limitado vão para a fila do mundo
+     * e são entregues em ticks seguintes.
+     *
+     * @param world O mundo.
+     * @param pos O bloco atualizado.
+     * @param state O estado do bloco atualizado.
+     * @param sourceBlock O bloco de origem.
+     * @param orientation A orientação (experimentos de redstone), ou null.
+     * @return false se a atualização foi descartada (redundante) ou adiada.
+     */
+    public static boolean shouldDeliverNeighborUpdate(World world, BlockPos pos, BlockState state, Block sourceBlock, @Nullable WireOrientation orientation) {
+        if (!BariumConfig.ENABLE_REDSTONE_OPTIMIZATION || !(world instanceof ServerWorld serverWorld)) {
+            return true;
+        }
+        WorldRedstoneState redstoneState = getOrCreateState(serverWorld);
+        long time = world.getTime();
+        if (BariumConfig.DEDUPLICATE_NEIGHBOR_UPDATES
+                && redstoneState.neighborUpdates.isRedundant(time, pos, state, sourceBlock, orientation, redstoneState.sectionVersions)) {
+            return false;
+        }
+        if (BariumConfig.LIMIT_REDSTONE_LAG_MACHINES && isRedstoneComponent(sourceBlock)
+                && !redstoneState.lagDetector.tryAcquire(time, pos)) {
+            // Adiada: ainda não foi entregue, então não é registrada na deduplicação (a reentrega não é redundante)
+            enqueueDeferred(redstoneState, pos, sourceBlock);
+            return false;
+        }
+        if (BariumConfig.DEDUPLICATE_NEIGHBOR_UPDATES) {
+            redstoneState.neighborUpdates.recordDelivery(pos, state, sourceBlock, orientation, redstoneState.sectionVersions);
+        }
+        return true;
+    }
+
+    // Fios, componentes que emitem sinal (repetidores, comparadores, observadores, tochas, alavancas...) e pistões
+    private static boolean isRedstoneComponent(Block block) {
+        return block instanceof RedstoneWireBlock || block instanceof PistonBlock || block instanceof PistonExtensionBlock
+                || block instanceof PistonHeadBlock || block.getDefaultState().emitsRedstonePower();
+    }
 
-        // Verifica se o vizinho é um fio de redstone
-        if (neighborState.getBlock() instanceof RedstoneWireBlock) {
-            int currentPower = currentState.getWeakRedstonePower(world, pos, direction);
-            int neighborPower = neighborState.get(RedstoneWireBlock.POWER);
+    /**
+     * Registra a mudança de um bloco: avança a versão da seção e descarta as redes compiladas cuja área contém o bloco.
+     *
+     * @param world O mundo.
+     * @param pos A posição alterada.
+     * @param state O novo estado.
+     */
+    public static void onBlockChanged(World world, BlockPos pos, BlockState state) {
+        if (world instanceof ServerWorld serverWorld) {
+            WorldRedstoneState redstoneState = getOrCreateState(serverWorld);
+            redstoneState.sectionVersions.onBlockChanged(pos);
+            redstoneState.compiledNetworks.onBlockChanged(pos, state);
+        }
+    }
 
-            // Calcula o poder que seria propagado
-            // Lógica simplificada, a real é mais complexa
-            int propagatedPower = Math.max(0, currentPower - 1);
+    /**
+     * Registra a mudança dos dados de um block entity (markDirty, saída de um comparador, jogadores com um baú com
+     * armadilha aberto). Não muda o estado do bloco, mas muda o que comparadores e fios ao redor leem: avança a versão
+     * da seção para que a próxima atualização deles seja entregue.
+     *
+     * @param world O mundo.
+     * @param pos A posição do block entity.
+     */
+    public static void onBlockEntityChanged(World world, BlockPos pos) {
+        WorldRedstoneState redstoneState = WORLD_STATES.get(world);
+        if (redstoneState != null) {
+            redstoneState.sectionVersions.onBlockChanged(pos);
+        }
+    }
 
-            // Se o poder propagado não mudaria o estado do vizinho, cancela
-            if (propagatedPower == neighborPower) {
-                // Poderia adicionar verificações mais complexas aqui
-                // return true; // Cancela a propagação
+    /**
+     * Descarta as redes compiladas, as versões de seção, a contagem e as atualizações enfileiradas de um chunk descarregado.
+     *
+     * @param world O mundo.
+     * @param pos O chunk descarregado.
+     */
+    public static void onChunkUnloaded(ServerWorld world, ChunkPos pos) {
+        WorldRedstoneState redstoneState = WORLD_STATES.get(world);
+        if (redstoneState != null) {
+            redstoneState.compiledNetworks.onChunkUnloaded(pos);
+            redstoneState.sectionVersions.onChunkUnloaded(pos, world.getBottomSectionCoord(), world.getTopSectionCoord());
+            redstoneState.lagDetector.onChunkUnloaded(pos);
+            // Entregar uma atualização adiada em um chunk descarregado o carregaria de novo
+            if (!redstoneState.updateQueue.isEmpty()) {
+                redstoneState.updateQueue.removeIf((RedstoneUpdate update) -> update.pos.getX() >> 4 == pos.x && update.pos.getZ() >> 4 == pos.z);
+                redstoneState.pendingUpdates.removeChunk(pos);
             }
         }
-        
-        // Adiciona mais verificações para outros blocos de redstone (repetidores, comparadores, etc.)
-        // ...
+    }
+
+    /**
+     * Limpa o estado associado a um mundo (ex: quando o mundo é descarregado).
+     *
+     * @param world O mundo.
+     */
+    public static void clearWorldState(ServerWorld world) {
+        WorldRedstoneState state = WORLD_STATES.remove(world);
+        if (state != null && !state.updateQueue.isEmpty()) {
+            BariumMod.LOGGER.debug("Descartando {} atualizações de redstone pendentes de {}.", state.updateQueue.size(), world.getRegistryKey().getValue());
+        }
+    }
 
-        return false; // Permite a propagação por padrão
+    private static WorldRedstoneState getOrCreateState(ServerWorld world) {
+        return WORLD_STATES.computeIfAbsent(world, w -> new WorldRedstoneState());
     }
 
     /**
-     * Limpa o estado do otimizador (ex: ao descarregar um mundo).
+     * @return true se o chunk está limitado por excesso de atualizações de redstone.
      */
-    public static void clearState() {
-        UPDATE_QUEUE.clear();
-        UPDATED_THIS_TICK.clear();
-        processingQueue = false;
+    public static boolean isChunkThrottled(ServerWorld world, ChunkPos pos) {
+        WorldRedstoneState redstoneState = WORLD_STATES.get(world);
+        return redstoneState != null && redstoneState.lagDetector.isThrottled(world.getTime(), pos);
+    }
+
+    /**
+     * Limpa todo o estado do otimizador (ex: ao fechar o servidor).
+     */
+    public static void clearAllStates() {
+        WORLD_STATES.clear();
+    }
+
+    // --- Estado por mundo ---
+
+    private static class WorldRedstoneState {
+        // Fila de atualizações compactadas e o bloco de origem de cada posição pendente
+        final Queue<RedstoneUpdate> updateQueue = new ArrayDeque<>();
+        final BlockPosMap<Block> pendingUpdates = new BlockPosMap<>();
+        boolean processingQueue;
+        long queueFullWarnedAt = -1;
+        // Motor de potência dos fios (buffers da rede em cálculo deste mundo)
+        final RedstoneWireEngine wireEngine = new RedstoneWireEngine(BariumConfig.REDSTONE_MAX_NETWORK_SIZE);
+        final CompiledWireNetworks compiledNetworks = new CompiledWireNetworks();
+        // Versões das seções: uma atualização repetida só é redundante se nada ao redor mudou
+        final ChunkSectionVersions sectionVersions = new ChunkSectionVersions();
+        final NeighborUpdateDeduplicator neighborUpdates = new NeighborUpdateDeduplicator();
+        // Contagem de atualizações por chunk (máquinas de lag)
+        final RedstoneLagDetector lagDetector = new RedstoneLagDetector(BariumConfig.MAX_REDSTONE_UPDATES_PER_TICK, BariumConfig.REDSTONE_LAG_THROTTLE_TICKS);
     }
 
     // --- Classe interna para a Fila de Atualização ---
 
     private static class RedstoneUpdate {
-        final World world;
         final BlockPos pos;
-        final BlockPos sourcePos;
+        final Block sourceBlock;
 
-        RedstoneUpdate(World world, BlockPos pos, BlockPos sourcePos) {
-            this.world = world;
+        RedstoneUpdate(BlockPos pos, Block sourceBlock) {
             this.pos = pos;
-            this.sourcePos = sourcePos;
+            this.sourceBlock = sourceBlock;
         }
     }
 }
@@ -0,0 +1,324 @@
+package com.barium.optimization;
+
+import com.barium.mixin.RedstoneWireBlockAccessor;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.RedstoneWireBlock;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.World;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Motor de potência de fios de redstone. Substitui o cálculo vanilla (DefaultRedstoneController), que recalcula
+ * um fio por vez e reenvia atualizações a cada mudança intermediária de potência, gerando avalanches quadráticas
+ * em linhas longas de pó.
+ *
+ * Uma atualização de fio:
+ * 1. Descobre a rede de fios conectados ao fio atualizado (mesmas regras de leitura do vanilla: vizinho horizontal,
+ *    diagonal para cima se o bloco ao lado é sólido e o de cima não, diagonal para baixo se o bloco ao lado não é sólido).
+ * 2. Lê uma vez a potência externa de cada fio (World.getReceivedRedstonePower com os fios desligados).
+ * 3. Propaga a potência em largura por nível (fila de baldes de 15 a 1): cada fio recebe o máximo entre a potência
+ *    externa e a do vizinho menos um. É o mesmo ponto fixo que o vanilla atinge, sem os estados intermediários.
+ * 4. Grava a potência final de cada fio que mudou uma única vez e envia um conjunto deduplicado de atualizações de
+ *    vizinhos (o mesmo alcance do vanilla: vizinhos dos vizinhos de cada fio alterado), em ordem determinística.
+ *
+ * As atualizações saem pelo NeighborUpdater do mundo. Dentro de ChainRestrictedNeighborUpdater (o caso comum) elas
+ * só são enfileiradas e entregues depois que o cálculo terminou; os fios da própria rede não estão entre os alvos.
+ * Se uma delas muda a potência que chega à rede (ex: uma tocha apagada), a atualização que volta a um fio da rede
+ * recalcula a rede a partir do estado atual do mundo. Redes maiores que o limite ficam com o cálculo vanilla.
+ * Redes estáveis podem ter a topologia compilada (ver CompiledWireNetworks), o que pula a etapa 1.
+ * Cada mundo tem o seu motor (ver RedstoneOptimizer), usado apenas na thread do mundo. A leitura da etapa 2 desliga
+ * wiresGivePower, que é um campo do bloco de fio (compartilhado por todos os mundos), como o próprio vanilla faz.
+ */
+public class RedstoneWireEngine {
+
+    private static final Direction[] HORIZONTAL = {Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST};
+    private static final Direction[] ALL = Direction.values();
+    // Candidatos por fio: 4 direções x (lado, lado acima, lado abaixo)
+    private static final int MAX_LINKS = 12;
+    private static final int MAX_POWER = 15;
+    private static final int NOT_FOUND = -1;
+
+    private final int maxNetworkSize;
+
+    // Rede em cálculo (reaproveitada entre atualizações)
+    private final Long2IntOpenHashMap indexByPos = new Long2IntOpenHashMap();
+    private final LongArrayList positions = new LongArrayList();
+    private final ObjectArrayList<BlockState> states = new ObjectArrayList<>();
+    private int[] power = new int[64];
+    // readers[i * MAX_LINKS ..]: fios que leem a potência do fio i
+    private int[] readers = new int[64 * MAX_LINKS];
+    private int[] readerCount = new int[64];
+    private final IntArrayList[] buckets = new IntArrayList[MAX_POWER + 1];
+    private final BlockPos.Mutable mutable = new BlockPos.Mutable();
+
+    public RedstoneWireEngine(int maxNetworkSize) {
+        this.maxNetworkSize = maxNetworkSize;
+        this.indexByPos.defaultReturnValue(NOT_FOUND);
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new IntArrayList();
+        }
+    }
+
+    /**
+     * Atualiza a potência da rede do fio na posição.
+     *
+     * @param world O mundo.
+     * @param pos A posição do fio atualizado.
+     * @param state O estado do fio.
+     * @param wire O bloco de fio.
+     * @param compiled As redes compiladas do mundo, ou null para sempre descobrir a rede.
+     * @return true se a atualização foi tratada; false se o vanilla deve calcular (rede grande demais ou estado fora do mundo).
+     */
+    public boolean update(World world, BlockPos pos, BlockState state, RedstoneWireBlock wire, @Nullable CompiledWireNetworks compiled) {
+        long start = pos.asLong();
+        if (world.getBlockState(pos) != state) {
+            // Fio sendo removido: o vanilla trata (só envia atualizações)
+            return false;
+        }
+        CompiledWireNetworks.CompiledWireNetwork network = compiled != null ? compiled.get(start) : null;
+        if (network == null || !load(world, network, wire)) {
+            if (network != null) {
+                compiled.invalidate(network);
+            }
+            if (!discover(world, start, state, wire)) {
+                clearNetwork();
+                return false;
+            }
+            if (compiled != null && compiled.onDiscovered(start)) {
+                compiled.add(compile());
+            }
+        }
+        computePower(world, wire);
+
+        // Fios com potência nova; copia antes de liberar os buffers para atualizações aninhadas
+        LongArrayList changed = new LongArrayList();
+        ObjectArrayList<BlockState> changedStates = new ObjectArrayList<>();
+        for (int i = 0; i < positions.size(); i++) {
+            BlockState wireState = states.get(i);
+            if (wireState.get(RedstoneWireBlock.POWER) != power[i]) {
+                changed.add(positions.getLong(i));
+                changedStates.add(wireState.with(RedstoneWireBlock.POWER, power[i]));
+            }
+        }
+        if (changed.isEmpty()) {
+            clearNetwork();
+            return true;
+        }
+        LongOpenHashSet wires = new LongOpenHashSet(positions);
+        clearNetwork();
+
+        for (int i = 0; i < changed.size(); i++) {
+            world.setBlockState(BlockPos.fromLong(changed.getLong(i)), changedStates.get(i), Block.NOTIFY_LISTENERS);
+        }
+        emitNeighborUpdates(world, changed, wires, wire);
+        return true;
+    }
+
+    // --- Descoberta da rede ---
+
+    private boolean discover(World world, long start, BlockState startState, RedstoneWireBlock wire) {
+        add(start, startState);
+        for (int i = 0; i < positions.size(); i++) {
+            if (positions.size() > maxNetworkSize) {
+                return false;
+            }
+            long pos = positions.getLong(i);
+            mutable.set(pos).move(Direction.UP);
+            boolean aboveSolid = world.getBlockState(mutable).isSolidBlock(world, mutable);
+            for (Direction direction : HORIZONTAL) {
+                long side = BlockPos.offset(pos, direction);
+                mutable.set(side);
+                BlockState sideState = world.getBlockState(mutable);
+                boolean sideSolid = sideState.isSolidBlock(world, mutable);
+                if (sideState.getBlock() == wire) {
+                    link(i, side, sideState);
+                }
+                // Os candidatos diagonais entram na rede mesmo quando este fio não lê deles: o outro fio pode ler deste
+                long up = BlockPos.offset(side, Direction.UP);
+                BlockState upState = world.getBlockState(mutable.set(up));
+                if (upState.getBlock() == wire) {
+                    int index = indexOf(up, upState);
+                    if (sideSolid && !aboveSolid) {
+                        addReader(index, i);
+                    }
+                }
+                long down = BlockPos.offset(side, Direction.DOWN);
+                BlockState downState = world.getBlockState(mutable.set(down));
+                if (downState.getBlock() == wire) {
+                    int index = indexOf(down, downState);
+                    if (!sideSolid) {
+                        addReader(index, i);
+                    }
+                }
+            }
+        }
+        return positions.size() <= maxNetworkSize;
+    }
+
+    // --- Redes compiladas ---
+
+    /**
+     * Carrega uma rede compilada nos buffers, lendo o estado atual de cada fio.
+     *
+     * @return false se algum fio não está mais no mundo (a rede deve ser descoberta novamente).
+     */
+    private boolean load(World world, CompiledWireNetworks.CompiledWireNetwork network, RedstoneWireBlock wire) {
+        for (int i = 0; i < network.positions.length; i++) {
+            BlockState wireState = world.getBlockState(mutable.set(network.positions[i]));
+            if (wireState.getBlock() != wire) {
+                clearNetwork();
+                return false;
+            }
+            int index = add(network.positions[i], wireState);
+            int from = network.readerStart[i];
+            int count = network.readerStart[i + 1] - from;
+            System.arraycopy(network.readers, from, readers, index * MAX_LINKS, count);
+            readerCount[index] = count;
+        }
+        return true;
+    }
+
+    /**
+     * Compila a rede descoberta nos buffers.
+     */
+    private CompiledWireNetworks.CompiledWireNetwork compile() {
+        int size = positions.size();
+        int[] readerStart = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            readerStart[i + 1] = readerStart[i] + readerCount[i];
+        }
+        int[] compiledReaders = new int[readerStart[size]];
+        LongOpenHashSet footprint = new LongOpenHashSet(size * 4);
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(readers, i * MAX_LINKS, compiledReaders, readerStart[i], readerCount[i]);
+            long pos = positions.getLong(i);
+            footprint.add(pos);
+            footprint.add(BlockPos.offset(pos, Direction.UP));
+            for (Direction direction : HORIZONTAL) {
+                long side = BlockPos.offset(pos, direction);
+                footprint.add(side);
+                footprint.add(BlockPos.offset(side, Direction.UP));
+                footprint.add(BlockPos.offset(side, Direction.DOWN));
+            }
+        }
+        return new CompiledWireNetworks.CompiledWireNetwork(positions.toLongArray(), readerStart, compiledReaders, footprint.toLongArray());
+    }
+
+    private void link(int reader, long pos, BlockState state) {
+        addReader(indexOf(pos, state), reader);
+    }
+
+    private int indexOf(long pos, BlockState state) {
+        int index = indexByPos.get(pos);
+        return index != NOT_FOUND ? index : add(pos, state);
+    }
+
+    private int add(long pos, BlockState state) {
+        int index = positions.size();
+        indexByPos.put(pos, index);
+        positions.add(pos);
+        states.add(state);
+        if (index >= power.length) {
+            int size = power.length * 2;
+            power = Arrays.copyOf(power, size);
+            readerCount = Arrays.copyOf(readerCount, size);
+            readers = Arrays.copyOf(readers, size * MAX_LINKS);
+        }
+        readerCount[index] = 0;
+        return index;
+    }
+
+    private void addReader(int source, int reader) {
+        int base = source * MAX_LINKS;
+        int count = readerCount[source];
+        for (int k = 0; k < count; k++) {
+            if (readers[base + k] == reader) {
+                return;
+            }
+        }
+        readers[base + count] = reader;
+        readerCount[source] = count + 1;
+    }
+
+    // --- Cálculo da potência ---
+
+    private void computePower(World world, RedstoneWireBlock wire) {
+        int size = positions.size();
+        RedstoneWireBlockAccessor accessor = (RedstoneWireBlockAccessor) wire;
+        accessor.barium$setWiresGivePower(false);
+        try {
+            for (int i = 0; i < size; i++) {
+                int external = world.getReceivedRedstonePower(mutable.set(positions.getLong(i)));
+                power[i] = external;
+                if (external > 0) {
+                    buckets[external].add(i);
+                }
+            }
+        } finally {
+            accessor.barium$setWiresGivePower(true);
+        }
+
+        for (int level = MAX_POWER; level > 1; level--) {
+            IntArrayList bucket = buckets[level];
+            for (int b = 0; b < bucket.size(); b++) {
+                int source = bucket.getInt(b);
+                if (power[source] != level) {
+                    continue;
+                }
+                int base = source * MAX_LINKS;
+                for (int k = 0; k < readerCount[source]; k++) {
+                    int reader = readers[base + k];
+                    if (power[reader] < level - 1) {
+                        power[reader] = level - 1;
+                        buckets[level - 1].add(reader);
+                    }
+                }
+            }
+            bucket.clear();
+        }
+        buckets[1].clear();
+    }
+
+    // --- Atualizações de vizinhos ---
+
+    private static void emitNeighborUpdates(World world, LongArrayList changed, LongOpenHashSet network, RedstoneWireBlock wire) {
+        // Mesmo alcance do vanilla (updateNeighborsAlways no fio e em cada vizinho), sem repetições
+        LongLinkedOpenHashSet targets = new LongLinkedOpenHashSet();
+        for (int i = 0; i < changed.size(); i++) {
+            long pos = changed.getLong(i);
+            addNeighbors(targets, pos, network);
+            for (Direction direction : ALL) {
+                addNeighbors(targets, BlockPos.offset(pos, direction), network);
+            }
+        }
+        for (LongIterator iterator = targets.iterator(); iterator.hasNext(); ) {
+            world.updateNeighbor(BlockPos.fromLong(iterator.nextLong()), wire, null);
+        }
+    }
+
+    private static void addNeighbors(LongLinkedOpenHashSet targets, long pos, LongOpenHashSet network) {
+        for (Direction direction : ALL) {
+            long neighbor = BlockPos.offset(pos, direction);
+            if (!network.contains(neighbor)) {
+                targets.add(neighbor);
+            }
+        }
+    }
+
+    private void clearNetwork() {
+        indexByPos.clear();
+        positions.clear();
+        states.clear();
+    }
+}
@@ -0,0 +1,328 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Grafo de conectividade grosseiro das seções de chunk de um mundo, para planejar rotas longas em dois níveis.
+ * Cada seção é dividida em componentes (regiões onde um mob a pé anda livremente, pelas regras de GroundMovement
+ * sobre os bitmaps de WalkabilityCache);
+ * as passagens (portais) de um componente para uma seção vizinha viram arestas do grafo.
+ * O A* roda primeiro sobre esse grafo (poucas dezenas de nós mesmo para alvos distantes) e a rota fina
+ * só precisa ir até a entrada da seção depois da próxima.
+ *
+ * As seções são analisadas sob demanda, com um orçamento por tick, e descartadas quando um bloco que afeta
+ * a análise muda. Usado apenas na thread do mundo.
+ */
+public class SectionConnectivityGraph {
+
+    // Componentes por seção (byte); seções mais fragmentadas não são atravessadas pelo planejador
+    private static final int MAX_COMPONENTS = 127;
+    // Limite de seções analisadas em memória por mundo (o cache é esvaziado ao atingir)
+    private static final int MAX_CACHED_SECTIONS = 2048;
+    // Limite de nós expandidos pelo A* grosseiro
+    private static final int MAX_COARSE_EXPANSIONS = 256;
+
+    private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private final Long2ObjectOpenHashMap<SectionNode> sections = new Long2ObjectOpenHashMap<>();
+    private int buildBudget;
+
+    /**
+     * Define quantas seções ainda podem ser analisadas neste tick.
+     */
+    public void resetBuildBudget(int budget) {
+        this.buildBudget = budget;
+    }
+
+    /**
+     * Planeja a rota no grafo de seções e devolve o ponto intermediário para a rota fina:
+     * a posição de entrada na seção depois da próxima.
+     *
+     * @param world O mundo.
+     * @param walkability Os bitmaps de walkability do mundo.
+     * @param start A posição dos pés do mob.
+     * @param target O alvo.
+     * @return O ponto intermediário, ou null se o alvo está a menos de duas seções ou se não houve plano
+     *         (seção não analisada, alvo inalcançável ou limite de expansões).
+     */
+    @Nullable
+    public BlockPos findWaypoint(ServerWorld world, WalkabilityCache walkability, BlockPos start, BlockPos target) {
+        long startSection = ChunkSectionPos.toLong(start);
+        long targetSection = ChunkSectionPos.toLong(target);
+        if (startSection == targetSection) {
+            return null;
+        }
+        SectionNode startNode = getOrBuild(world, walkability, startSection);
+        if (startNode == null || startNode.complex) {
+            return null;
+        }
+        int startComponent = startNode.componentAt(start.getX(), start.getY(), start.getZ());
+        if (startComponent < 0) {
+            return null;
+        }
+
+        Map<CoarseKey, CoarseState> best = new HashMap<>();
+        PriorityQueue<CoarseState> open = new PriorityQueue<>();
+        CoarseState initial = new CoarseState(startSection, startComponent, start.asLong(), 0, distance(start.asLong(), target.asLong()), null);
+        best.put(new CoarseKey(startSection, startComponent), initial);
+        open.add(initial);
+
+        Set<CoarseKey> closed = new HashSet<>();
+        int expansions = 0;
+        while (!open.isEmpty() && expansions < MAX_COARSE_EXPANSIONS) {
+            CoarseState state = open.poll();
+            if (!closed.add(new CoarseKey(state.section, state.component))) {
+                continue;
+            }
+            expansions++;
+
+            if (state.section == targetSection) {
+                return waypointOf(state);
+            }
+
+            SectionNode node = sections.get(state.section);
+            if (node == null) {
+                continue;
+            }
+            for (int i = 0; i < node.portalFrom.length; i++) {
+                if (node.portalComponent[i] != state.component) {
+                    continue;
+                }
+                long to = node.portalTo[i];
+                long nextSection = ChunkSectionPos.toLong(BlockPos.fromLong(to));
+                SectionNode next = getOrBuild(world, walkability, nextSection);
+                if (next == null || next.complex) {
+                    continue;
+                }
+                int nextComponent = next.componentAt(BlockPos.unpackLongX(to), BlockPos.unpackLongY(to), BlockPos.unpackLongZ(to));
+                if (nextComponent < 0) {
+                    continue;
+                }
+                CoarseKey key = new CoarseKey(nextSection, nextComponent);
+                if (closed.contains(key)) {
+                    continue;
+                }
+                double cost = state.cost + distance(state.entry, node.portalFrom[i]) + 1.0;
+                CoarseState known = best.get(key);
+                if (known == null || cost < known.cost) {
+                    CoarseState nextState = new CoarseState(nextSection, nextComponent, to, cost, cost + distance(to, target.asLong()), state);
+                    best.put(key, nextState);
+                    open.add(nextState);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Descarta as seções cuja análise leu a posição alterada.
+     * A análise de uma posição lê os vizinhos horizontais, até 4 blocos abaixo (chão de uma queda) e 2 acima (pulo).
+     */
+    public void onBlockChanged(BlockPos pos) {
+        if (sections.isEmpty()) {
+            return;
+        }
+        for (int sx = (pos.getX() - 1) >> 4; sx <= (pos.getX() + 1) >> 4; sx++) {
+            for (int sy = (pos.getY() - 2) >> 4; sy <= (pos.getY() + 4) >> 4; sy++) {
+                for (int sz = (pos.getZ() - 1) >> 4; sz <= (pos.getZ() + 1) >> 4; sz++) {
+                    sections.remove(ChunkSectionPos.asLong(sx, sy, sz));
+                }
+            }
+        }
+    }
+
+    /**
+     * Descarta as seções de um chunk descarregado.
+     */
+    public void onChunkUnloaded(ChunkPos pos, int bottomSectionY, int topSectionY) {
+        if (sections.isEmpty()) {
+            return;
+        }
+        for (int sectionY = bottomSectionY; sectionY < topSectionY; sectionY++) {
+            sections.remove(ChunkSectionPos.asLong(pos.x, sectionY, pos.z));
+        }
+    }
+
+    public int size() {
+        return sections.size();
+    }
+
+    // --- Análise das seções ---
+
+    @Nullable
+    private SectionNode getOrBuild(ServerWorld world, WalkabilityCache walkability, long sectionKey) {
+        SectionNode node = sections.get(sectionKey);
+        if (node != null || buildBudget <= 0) {
+            return node;
+        }
+        int sectionX = ChunkSectionPos.unpackX(sectionKey);
+        int sectionY = ChunkSectionPos.unpackY(sectionKey);
+        int sectionZ = ChunkSectionPos.unpackZ(sectionKey);
+        if (sectionY < world.getBottomSectionCoord() || sectionY >= world.getTopSectionCoord()) {
+            return null;
+        }
+        // A análise lê um bloco além das bordas: os chunks vizinhos precisam estar carregados (nunca carrega chunks)
+        for (int cx = sectionX - 1; cx <= sectionX + 1; cx++) {
+            for (int cz = sectionZ - 1; cz <= sectionZ + 1; cz++) {
+                if (!world.getChunkManager().isChunkLoaded(cx, cz)) {
+                    return null;
+                }
+            }
+        }
+
+        long[] standable = walkability.getStandablePlane(sectionX, sectionY, sectionZ);
+        if (standable == null) {
+            return null;
+        }
+        buildBudget--;
+        node = build(walkability, standable, sectionX, sectionY, sectionZ);
+        if (sections.size() >= MAX_CACHED_SECTIONS) {
+            sections.clear();
+        }
+        sections.put(sectionKey, node);
+        return node;
+    }
+
+    private static SectionNode build(WalkabilityCache walkability, long[] standable, int sectionX, int sectionY, int sectionZ) {
+        int baseX = sectionX << 4;
+        int baseY = sectionY << 4;
+        int baseZ = sectionZ << 4;
+
+        SectionNode node = new SectionNode();
+
+        LongArrayList portalFrom = new LongArrayList();
+        LongArrayList portalTo = new LongArrayList();
+        List<Byte> portalComponent = new ArrayList<>();
+        Set<PortalKey> portalKeys = new HashSet<>();
+        IntArrayFIFOQueue queue = new IntArrayFIFOQueue();
+
+        int componentCount = 0;
+        // Percorre só as posições em pé, palavra por palavra do bitmap
+        scan:
+        for (int word = 0; word < SectionWalkabilityBitmap.WORDS; word++) {
+            for (long bits = standable[word]; bits != 0; bits &= bits - 1) {
+                int i = (word << 6) | Long.numberOfTrailingZeros(bits);
+                if (node.components[i] >= 0) {
+                    continue;
+                }
+                if (componentCount == MAX_COMPONENTS) {
+                    node.complex = true;
+                    break scan;
+                }
+                byte component = (byte) componentCount++;
+                node.components[i] = component;
+                queue.enqueue(i);
+
+                // Flood fill do componente; movimentos que saem da seção viram portais, um por posição de chegada.
+                // Não basta um por seção vizinha: a primeira passagem pode cair num componente isolado da vizinha,
+                // e o componente de chegada só é conhecido quando a vizinha é analisada (resolvido em findWaypoint)
+                while (!queue.isEmpty()) {
+                    int cell = queue.dequeueInt();
+                    int x = baseX + (cell & 15);
+                    int y = baseY + (cell >> 8);
+                    int z = baseZ + ((cell >> 4) & 15);
+                    for (int[] direction : DIRECTIONS) {
+                        int nx = x + direction[0];
+                        int nz = z + direction[1];
+                        int ny = GroundMovement.nextY(walkability, x, y, z, nx, nz, false);
+                        if (ny == GroundMovement.BLOCKED) {
+                            continue;
+                        }
+                        if ((nx >> 4) == sectionX && (ny >> 4) == sectionY && (nz >> 4) == sectionZ) {
+                            int next = SectionWalkabilityBitmap.index(nx, ny, nz);
+                            if (node.components[next] < 0) {
+                                node.components[next] = component;
+                                queue.enqueue(next);
+                            }
+                        } else if (portalKeys.add(new PortalKey(component, BlockPos.asLong(nx, ny, nz)))) {
+                            portalFrom.add(BlockPos.asLong(x, y, z));
+                            portalTo.add(BlockPos.asLong(nx, ny, nz));
+                            portalComponent.add(component);
+                        }
+                    }
+                }
+            }
+        }
+
+        node.portalFrom = portalFrom.toLongArray();
+        node.portalTo = portalTo.toLongArray();
+        node.portalComponent = new byte[portalComponent.size()];
+        for (int i = 0; i < node.portalComponent.length; i++) {
+            node.portalComponent[i] = portalComponent.get(i);
+        }
+        return node;
+    }
+
+    // --- Plano grosseiro ---
+
+    @Nullable
+    private static BlockPos waypointOf(CoarseState goal) {
+        List<CoarseState> chain = new ArrayList<>();
+        for (CoarseState state = goal; state != null; state = state.parent) {
+            chain.add(state);
+        }
+        // chain está do alvo para a partida: [tamanho - 1] = seção atual, [tamanho - 2] = próxima
+        if (chain.size() <= 2) {
+            return null;
+        }
+        return BlockPos.fromLong(chain.get(chain.size() - 3).entry);
+    }
+
+    private static double distance(long a, long b) {
+        double dx = BlockPos.unpackLongX(a) - BlockPos.unpackLongX(b);
+        double dy = BlockPos.unpackLongY(a) - BlockPos.unpackLongY(b);
+        double dz = BlockPos.unpackLongZ(a) - BlockPos.unpackLongZ(b);
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    // --- Classes internas ---
+
+    private static class SectionNode {
+        // Componente de cada posição em pé da seção, ou -1
+        final byte[] components = new byte[4096];
+        // Portais: posição de saída (nesta seção), posição de chegada (na vizinha) e componente de saída
+        long[] portalFrom;
+        long[] portalTo;
+        byte[] portalComponent;
+        // Fragmentada demais para o planejador
+        boolean complex;
+
+        SectionNode() {
+            Arrays.fill(components, (byte) -1);
+        }
+
+        int componentAt(int x, int y, int z) {
+            return components[SectionWalkabilityBitmap.index(x, y, z)];
+        }
+    }
+
+    private record PortalKey(byte component, long to) {
+    }
+
+    private record CoarseKey(long section, int component) {
+    }
+
+    private record CoarseState(long section, int component, long entry, double cost, double estimate,
+                               CoarseState parent) implements Comparable<CoarseState> {
+        @Override
+        public int compareTo(CoarseState other) {
+            return Double.compare(estimate, other.estimate);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.BlockView;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.Arrays;
+
+/**
+ * Bitmap de walkability de uma seção de chunk: um bit por bloco em três planos (sólido, passável e líquido),
+ * calculados com as regras de GroundMovement. O índice do bit é (y << 8) | (z << 4) | x, então cada long
+ * cobre 4 linhas de x de uma camada e uma camada inteira ocupa 4 longs.
+ * O plano derivado "em pé" (chão abaixo, pés e cabeça livres) é calculado palavra por palavra com AND
+ * entre camadas deslocadas, em vez de três consultas de BlockState por posição.
+ */
+public class SectionWalkabilityBitmap {
+
+    public static final int WORDS = 64;
+    // Longs por camada de y (16 * 16 bits)
+    public static final int WORDS_PER_LAYER = 4;
+
+    private static final int SOLID = 1;
+    private static final int PASSABLE = 2;
+    private static final int LIQUID = 4;
+
+    final long[] solid = new long[WORDS];
+    final long[] passable = new long[WORDS];
+    final long[] liquid = new long[WORDS];
+    // Plano "em pé"; null quando precisa ser recalculado (depende das seções acima e abaixo)
+    long[] standable;
+
+    /**
+     * Calcula o bitmap de uma seção. Deve ser chamado na thread do mundo.
+     *
+     * @param view O mundo (para as formas de colisão).
+     * @param section A seção do chunk.
+     * @param sectionX Coordenada x da seção.
+     * @param sectionY Coordenada y da seção.
+     * @param sectionZ Coordenada z da seção.
+     */
+    public static SectionWalkabilityBitmap build(BlockView view, ChunkSection section, int sectionX, int sectionY, int sectionZ) {
+        SectionWalkabilityBitmap bitmap = new SectionWalkabilityBitmap();
+        if (section.isEmpty()) {
+            Arrays.fill(bitmap.passable, -1L);
+            return bitmap;
+        }
+
+        // As regras dependem do estado (forma de colisão, fluido, perigo): cada estado distinto é avaliado uma vez
+        Reference2IntOpenHashMap<BlockState> flagsByState = new Reference2IntOpenHashMap<>();
+        flagsByState.defaultReturnValue(-1);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        int baseX = sectionX << 4;
+        int baseY = sectionY << 4;
+        int baseZ = sectionZ << 4;
+        for (int index = 0; index < 4096; index++) {
+            int x = index & 15;
+            int z = (index >> 4) & 15;
+            int y = index >> 8;
+            BlockState state = section.getBlockState(x, y, z);
+            int flags = flagsByState.getInt(state);
+            if (flags < 0) {
+                flags = computeFlags(view, pos.set(baseX + x, baseY + y, baseZ + z), state);
+                flagsByState.put(state, flags);
+            }
+            bitmap.setFlags(index, flags);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Atualiza os bits de uma posição após uma mudança de bloco.
+     */
+    public void update(BlockView view, BlockPos pos, BlockState state) {
+        setFlags(index(pos.getX(), pos.getY(), pos.getZ()), computeFlags(view, pos, state));
+        standable = null;
+    }
+
+    public boolean isSolid(int x, int y, int z) {
+        return test(solid, index(x, y, z));
+    }
+
+    public boolean isPassable(int x, int y, int z) {
+        return test(passable, index(x, y, z));
+    }
+
+    public boolean isLiquid(int x, int y, int z) {
+        return test(liquid, index(x, y, z));
+    }
+
+    /**
+     * Calcula o plano "em pé": sólido na camada abaixo, passável na camada e na camada acima.
+     *
+     * @param below A seção abaixo (ou null: a camada 0 não tem chão conhecido).
+     * @param above A seção acima (ou null: a camada 15 não tem espaço livre conhecido para a cabeça).
+     */
+    public long[] computeStandable(SectionWalkabilityBitmap below, SectionWalkabilityBitmap above) {
+        long[] result = new long[WORDS];
+        for (int word = 0; word < WORDS; word++) {
+            long feet = passable[word];
+            if (feet == 0) {
+                continue;
+            }
+            long floor = word >= WORDS_PER_LAYER ? solid[word - WORDS_PER_LAYER]
+                    : below != null ? below.solid[word + WORDS - WORDS_PER_LAYER] : 0L;
+            long head = word < WORDS - WORDS_PER_LAYER ? passable[word + WORDS_PER_LAYER]
+                    : above != null ? above.passable[word - WORDS + WORDS_PER_LAYER] : 0L;
+            result[word] = floor & feet & head;
+        }
+        return result;
+    }
+
+    public static int index(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    public static boolean test(long[] plane, int index) {
+        return (plane[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void setFlags(int index, int flags) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+        solid[word] = (flags & SOLID) != 0 ? solid[word] | bit : solid[word] & ~bit;
+        passable[word] = (flags & PASSABLE) != 0 ? passable[word] | bit : passable[word] & ~bit;
+        liquid[word] = (flags & LIQUID) != 0 ? liquid[word] | bit : liquid[word] & ~bit;
+    }
+
+    private static int computeFlags(BlockView view, BlockPos pos, BlockState state) {
+        int flags = 0;
+        if (GroundMovement.isFloorState(view, pos, state)) {
+            flags |= SOLID;
+        }
+        if (GroundMovement.isOpenState(view, pos, state)) {
+            flags |= PASSABLE;
+        }
+        if (!state.getFluidState().isEmpty()) {
+            flags |= LIQUID;
+        }
+        return flags;
+    }
+}
@@ -0,0 +1,185 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.ai.pathing.EntityNavigation;
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.ai.pathing.PathNode;
+import net.minecraft.entity.ai.pathing.PathNodeMaker;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache de rotas compartilhado entre mobs de um mesmo mundo.
+ * Mobs do mesmo tipo, com o mesmo tipo e as mesmas regras de navegação (portas, natação, cercas), partindo da mesma região (células de 4x4x4 blocos)
+ * em direção ao mesmo alvo reutilizam a rota calculada pelo primeiro: a rota é "emendada" a partir
+ * do nó mais próximo da posição do mob. Cada entrada guarda as seções de chunk das quais a rota depende
+ * e é descartada quando alguma delas muda (ChunkSectionVersions).
+ * Usado apenas na thread do mundo.
+ */
+public class SharedPathCache {
+
+    // Tamanho da região de partida (1 << REGION_SHIFT blocos por eixo)
+    private static final int REGION_SHIFT = 2;
+    // Quantos nós do início da rota são considerados para a emenda
+    private static final int SPLICE_SEARCH_NODES = 8;
+    // Distância quadrada máxima entre o mob e o nó da emenda (vizinho, inclusive na diagonal e um degrau)
+    private static final int SPLICE_MAX_DISTANCE_SQ = 3;
+
+    private final Map<Key, Entry> entries;
+
+    /**
+     * @param capacity Quantidade máxima de rotas; a usada há mais tempo é descartada primeiro.
+     */
+    public SharedPathCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Monta a chave de cache para uma busca de rota.
+     *
+     * @param entity O mob que está navegando.
+     * @param navigation A navegação do mob.
+     * @param start A posição de partida da busca.
+     * @param target O alvo da busca.
+     * @param range O alcance extra da busca em torno do alvo.
+     * @param distance A distância do alvo considerada suficiente.
+     * @param followRange O alcance máximo da busca.
+     */
+    public static Key key(MobEntity entity, EntityNavigation navigation, BlockPos start, BlockPos target, int range, int distance, float followRange) {
+        long startRegion = BlockPos.asLong(start.getX() >> REGION_SHIFT, start.getY() >> REGION_SHIFT, start.getZ() >> REGION_SHIFT);
+        return new Key(startRegion, target.asLong(), range, distance, (int) followRange, entity.getType(), entity.isBaby(),
+                navigation.getClass(), nodeMakerFlags(navigation.getNodeMaker()));
+    }
+
+    // Regras do PathNodeMaker que mudam os nós válidos (configuradas por instância, ex: aldeões abrem portas)
+    private static int nodeMakerFlags(PathNodeMaker nodeMaker) {
+        return (nodeMaker.canEnterOpenDoors() ? 1 : 0)
+                | (nodeMaker.canOpenDoors() ? 2 : 0)
+                | (nodeMaker.canSwim() ? 4 : 0)
+                | (nodeMaker.canWalkOverFences() ? 8 : 0);
+    }
+
+    /**
+     * Procura uma rota compartilhada e a emenda à posição de partida.
+     *
+     * @param key A chave da busca.
+     * @param start A posição de partida do mob.
+     * @param versions As versões das seções do mundo.
+     * @return Uma nova rota (própria do mob), ou null se não houver rota utilizável.
+     */
+    public Path get(Key key, BlockPos start, ChunkSectionVersions versions) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!versions.isUnchangedSince(entry.sections, entry.stamp)) {
+            entries.remove(key);
+            return null;
+        }
+        int spliceIndex = entry.findSpliceIndex(start);
+        if (spliceIndex < 0) {
+            return null;
+        }
+        // Cada mob avança e encurta a sua rota: a lista de nós é sempre uma cópia
+        return new Path(new ArrayList<>(entry.nodes.subList(spliceIndex, entry.nodes.size())), entry.target, entry.reachesTarget);
+    }
+
+    /**
+     * Armazena uma rota recém-calculada.
+     *
+     * @param key A chave da busca.
+     * @param path A rota calculada (não é modificada).
+     * @param stamp O carimbo de versão do momento em que o terreno da rota foi lido (ChunkSectionVersions.getStamp()).
+     */
+    public void put(Key key, Path path, long stamp) {
+        if (path.getLength() < 2 || path.getTarget() == null) {
+            return;
+        }
+        entries.put(key, new Entry(path, stamp));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return As seções de chunk das quais a rota depende (chão abaixo, vizinhos e espaço acima de cada nó).
+     */
+    public static long[] collectSections(Path path) {
+        LongOpenHashSet sections = new LongOpenHashSet();
+        for (int i = 0; i < path.getLength(); i++) {
+            PathNode node = path.getNode(i);
+            ChunkSectionVersions.addSections(sections, node.x - 1, node.y - 1, node.z - 1, node.x + 1, node.y + 2, node.z + 1);
+        }
+        return sections.toLongArray();
+    }
+
+    // --- Chave e Entrada do Cache ---
+
+    /**
+     * Chave de uma busca de rota. Tipo de entidade e filhote entram na chave porque mudam
+     * o tamanho do mob e as penalidades dos nós; as regras do PathNodeMaker (portas, natação, cercas)
+     * porque mudam os nós que a rota pode usar.
+     */
+    public record Key(long startRegion, long target, int range, int distance, int followRange,
+                      EntityType<?> type, boolean baby, Class<?> navigationType, int nodeMakerFlags) {
+    }
+
+    private static class Entry {
+        final List<PathNode> nodes;
+        final BlockPos target;
+        final boolean reachesTarget;
+        // Seções de chunk das quais a rota depende e o carimbo de versão da criação
+        final long[] sections;
+        final long stamp;
+
+        Entry(Path path, long stamp) {
+            this.nodes = new ArrayList<>(path.getLength());
+            for (int i = 0; i < path.getLength(); i++) {
+                // Os nós não são alterados depois da busca e podem ser compartilhados entre rotas
+                this.nodes.add(path.getNode(i));
+            }
+            this.target = path.getTarget();
+            this.reachesTarget = path.reachesTarget();
+            this.sections = collectSections(path);
+            this.stamp = stamp;
+        }
+
+        /**
+         * @return O índice do nó mais próximo da posição (entre os primeiros da rota), ou -1 se nenhum for vizinho.
+         */
+        int findSpliceIndex(BlockPos start) {
+            int best = -1;
+            int bestDistanceSq = SPLICE_MAX_DISTANCE_SQ;
+            int limit = Math.min(nodes.size() - 1, SPLICE_SEARCH_NODES);
+            for (int i = 0; i < limit; i++) {
+                PathNode node = nodes.get(i);
+                int dx = node.x - start.getX();
+                int dy = node.y - start.getY();
+                int dz = node.z - start.getZ();
+                int distanceSq = dx * dx + dy * dy + dz * dz;
+                // Em empate fica com o nó mais adiantado
+                if (distanceSq <= bestDistanceSq) {
+                    best = i;
+                    bestDistanceSq = distanceSq;
+                }
+            }
+            return best;
+        }
+    }
+}
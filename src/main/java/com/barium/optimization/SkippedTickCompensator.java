@@ -0,0 +1,71 @@
+package com.barium.optimization;
+
+import com.barium.mixin.ExperienceOrbEntityAccessor;
+import com.barium.mixin.ItemEntityAccessor;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.ExperienceOrbEntity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.entity.passive.AnimalEntity;
+import net.minecraft.entity.passive.PassiveEntity;
+
+/**
+ * Aplica de uma só vez os avanços de idade e temporizadores que uma entidade perdeu
+ * enquanto teve ticks pulados pelo EntityTickOptimizer.
+ * Assim o throttling pode ser agressivo sem deixar despawn de itens, cooldown de reprodução
+ * e crescimento de filhotes N vezes mais lentos.
+ * Baseado nos mappings Yarn 1.21.5+build.1
+ */
+public class SkippedTickCompensator {
+
+    // Valores especiais de ItemEntity (constantes privadas no vanilla)
+    private static final int ITEM_DESPAWN_AGE = 6000;
+    private static final int ITEM_NEVER_DESPAWN_AGE = -32768;
+    private static final int ITEM_CANNOT_PICKUP_DELAY = 32767;
+
+    // Idade de despawn de ExperienceOrbEntity (constante privada no vanilla)
+    private static final int ORB_DESPAWN_AGE = 6000;
+
+    /**
+     * Aplica os ticks pulados à entidade, imediatamente antes do tick que ela vai executar.
+     * Os contadores que disparam eventos (despawn) são limitados a um tick antes do limite,
+     * para que o próprio tick vanilla execute o evento.
+     *
+     * @param entity A entidade.
+     * @param skippedTicks Quantidade de ticks pulados desde o último tick executado.
+     */
+    public static void applySkippedTicks(Entity entity, int skippedTicks) {
+        if (skippedTicks <= 0) {
+            return;
+        }
+
+        // Entity.age é incrementado em ServerWorld.tickEntity, que foi pulado junto com o tick
+        entity.age += skippedTicks;
+
+        if (entity instanceof ItemEntity) {
+            ItemEntityAccessor item = (ItemEntityAccessor) entity;
+            int itemAge = item.barium$getItemAge();
+            if (itemAge != ITEM_NEVER_DESPAWN_AGE) {
+                item.barium$setItemAge(Math.min(itemAge + skippedTicks, ITEM_DESPAWN_AGE - 1));
+            }
+            int pickupDelay = item.barium$getPickupDelay();
+            if (pickupDelay > 0 && pickupDelay != ITEM_CANNOT_PICKUP_DELAY) {
+                item.barium$setPickupDelay(Math.max(0, pickupDelay - skippedTicks));
+            }
+        } else if (entity instanceof ExperienceOrbEntity) {
+            ExperienceOrbEntityAccessor orb = (ExperienceOrbEntityAccessor) entity;
+            orb.barium$setOrbAge(Math.min(orb.barium$getOrbAge() + skippedTicks, ORB_DESPAWN_AGE - 1));
+        } else if (entity instanceof PassiveEntity passive) {
+            // Filhotes crescem (idade negativa sobe até 0) e adultos saem do cooldown de reprodução (idade positiva desce até 0)
+            int breedingAge = passive.getBreedingAge();
+            if (breedingAge < 0) {
+                passive.setBreedingAge(Math.min(0, breedingAge + skippedTicks));
+            } else if (breedingAge > 0) {
+                passive.setBreedingAge(Math.max(0, breedingAge - skippedTicks));
+            }
+
+            if (passive instanceof AnimalEntity animal && animal.getLoveTicks() > 0) {
+                animal.setLoveTicks(Math.max(0, animal.getLoveTicks() - skippedTicks));
+            }
+        }
+    }
+}
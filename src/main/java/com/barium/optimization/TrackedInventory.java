@@ -0,0 +1,9 @@
+package com.barium.optimization;
+
+/**
+ * Inventário com estado de slots acompanhado (implementado por LootableContainerBlockEntity via mixin).
+ */
+public interface TrackedInventory {
+
+    InventorySlotTracker barium$getSlotTracker();
+}
@@ -0,0 +1,165 @@
+package com.barium.optimization;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.chunk.WorldChunk;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Bitmaps de walkability das seções de um mundo (SectionWalkabilityBitmap), calculados sob demanda
+ * e mantidos atualizados a cada mudança de bloco, bit a bit.
+ * Serve de terreno para as regras de GroundMovement na thread do mundo (grafo de seções, verificações de colisão)
+ * e é copiado por PathRegionSnapshot para o A* assíncrono.
+ * Posições em chunks não carregados nunca são passáveis nem chão (e nunca causam carregamento de chunk).
+ * Usado apenas na thread do mundo.
+ */
+public class WalkabilityCache implements GroundMovement.Terrain {
+
+    // Limite de seções em memória por mundo (~2 KB cada; o cache é esvaziado ao atingir)
+    private static final int MAX_CACHED_SECTIONS = 4096;
+
+    private final ServerWorld world;
+    private final Long2ObjectOpenHashMap<SectionWalkabilityBitmap> sections = new Long2ObjectOpenHashMap<>();
+
+    // Última seção consultada: consultas vizinhas quase sempre caem na mesma seção
+    private long lastKey;
+    private SectionWalkabilityBitmap last;
+
+    public WalkabilityCache(ServerWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * @return O bitmap da seção (calculado se necessário), ou null se o chunk não está carregado ou a seção está fora do mundo.
+     */
+    @Nullable
+    public SectionWalkabilityBitmap get(int sectionX, int sectionY, int sectionZ) {
+        long key = ChunkSectionPos.asLong(sectionX, sectionY, sectionZ);
+        if (last != null && lastKey == key) {
+            return last;
+        }
+        SectionWalkabilityBitmap bitmap = sections.get(key);
+        if (bitmap == null) {
+            if (sectionY < world.getBottomSectionCoord() || sectionY >= world.getTopSectionCoord()) {
+                return null;
+            }
+            WorldChunk chunk = world.getChunkManager().getWorldChunk(sectionX, sectionZ);
+            if (chunk == null) {
+                return null;
+            }
+            bitmap = SectionWalkabilityBitmap.build(world, chunk.getSectionArray()[world.sectionCoordToIndex(sectionY)], sectionX, sectionY, sectionZ);
+            if (sections.size() >= MAX_CACHED_SECTIONS) {
+                clear();
+            }
+            sections.put(key, bitmap);
+        }
+        lastKey = key;
+        last = bitmap;
+        return bitmap;
+    }
+
+    @Nullable
+    private SectionWalkabilityBitmap getAt(int x, int y, int z) {
+        return get(x >> 4, y >> 4, z >> 4);
+    }
+
+    /**
+     * @return O plano "em pé" da seção (ver SectionWalkabilityBitmap.computeStandable), ou null se indisponível.
+     *         O array não deve ser modificado.
+     */
+    @Nullable
+    public long[] getStandablePlane(int sectionX, int sectionY, int sectionZ) {
+        SectionWalkabilityBitmap bitmap = get(sectionX, sectionY, sectionZ);
+        if (bitmap == null) {
+            return null;
+        }
+        if (bitmap.standable == null) {
+            SectionWalkabilityBitmap below = get(sectionX, sectionY - 1, sectionZ);
+            SectionWalkabilityBitmap above = get(sectionX, sectionY + 1, sectionZ);
+            bitmap.standable = bitmap.computeStandable(below, above);
+        }
+        return bitmap.standable;
+    }
+
+    @Override
+    public boolean isOpen(int x, int y, int z) {
+        SectionWalkabilityBitmap bitmap = getAt(x, y, z);
+        return bitmap != null && bitmap.isPassable(x, y, z);
+    }
+
+    @Override
+    public boolean isFloor(int x, int y, int z) {
+        SectionWalkabilityBitmap bitmap = getAt(x, y, z);
+        return bitmap != null && bitmap.isSolid(x, y, z);
+    }
+
+    public boolean isLiquid(int x, int y, int z) {
+        SectionWalkabilityBitmap bitmap = getAt(x, y, z);
+        return bitmap != null && bitmap.isLiquid(x, y, z);
+    }
+
+    @Override
+    public boolean canStand(int x, int y, int z) {
+        long[] plane = getStandablePlane(x >> 4, y >> 4, z >> 4);
+        return plane != null && SectionWalkabilityBitmap.test(plane, SectionWalkabilityBitmap.index(x, y, z));
+    }
+
+    /**
+     * Atualiza o bit da posição alterada, se a seção estiver em cache.
+     * O plano "em pé" das seções vizinhas também depende das camadas de borda.
+     */
+    public void onBlockChanged(BlockPos pos) {
+        if (sections.isEmpty()) {
+            return;
+        }
+        int sectionX = pos.getX() >> 4;
+        int sectionY = pos.getY() >> 4;
+        int sectionZ = pos.getZ() >> 4;
+        SectionWalkabilityBitmap bitmap = sections.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+        if (bitmap == null) {
+            return;
+        }
+        bitmap.update(world, pos, world.getBlockState(pos));
+
+        int localY = pos.getY() & 15;
+        if (localY == 15) {
+            // Chão da camada 0 da seção acima
+            invalidateStandable(sectionX, sectionY + 1, sectionZ);
+        } else if (localY == 0) {
+            // Cabeça da camada 15 da seção abaixo
+            invalidateStandable(sectionX, sectionY - 1, sectionZ);
+        }
+    }
+
+    private void invalidateStandable(int sectionX, int sectionY, int sectionZ) {
+        SectionWalkabilityBitmap bitmap = sections.get(ChunkSectionPos.asLong(sectionX, sectionY, sectionZ));
+        if (bitmap != null) {
+            bitmap.standable = null;
+        }
+    }
+
+    /**
+     * Descarta os bitmaps de um chunk descarregado.
+     */
+    public void onChunkUnloaded(ChunkPos pos, int bottomSectionY, int topSectionY) {
+        if (sections.isEmpty()) {
+            return;
+        }
+        for (int sectionY = bottomSectionY; sectionY < topSectionY; sectionY++) {
+            sections.remove(ChunkSectionPos.asLong(pos.x, sectionY, pos.z));
+        }
+        last = null;
+    }
+
+    public int size() {
+        return sections.size();
+    }
+
+    public void clear() {
+        sections.clear();
+        last = null;
+    }
+}
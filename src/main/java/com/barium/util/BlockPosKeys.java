@@ -0,0 +1,21 @@
+package com.barium.util;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Funções para posições de bloco empacotadas em long (BlockPos.asLong), usadas como chave
+ * nos mapas e conjuntos primitivos do Barium.
+ */
+public final class BlockPosKeys {
+
+    private BlockPosKeys() {
+    }
+
+    /**
+     * @return true se a posição empacotada está dentro do chunk.
+     */
+    public static boolean isInChunk(long key, ChunkPos pos) {
+        return (BlockPos.unpackLongX(key) >> 4) == pos.x && (BlockPos.unpackLongZ(key) >> 4) == pos.z;
+    }
+}
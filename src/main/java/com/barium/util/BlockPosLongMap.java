@@ -0,0 +1,45 @@
+package com.barium.util;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Mapa de posição de bloco para long primitivo, com chave long (BlockPos.asLong) em tabela de endereçamento aberto.
+ * Sem objetos BlockPos nem valores boxed. Posições ausentes devolvem o valor padrão informado no construtor.
+ * Não é thread-safe.
+ */
+public class BlockPosLongMap extends Long2LongOpenHashMap {
+
+    public BlockPosLongMap(long defaultValue) {
+        super();
+        defaultReturnValue(defaultValue);
+    }
+
+    public long get(BlockPos pos) {
+        return get(pos.asLong());
+    }
+
+    public long put(BlockPos pos, long value) {
+        return put(pos.asLong(), value);
+    }
+
+    public long remove(BlockPos pos) {
+        return remove(pos.asLong());
+    }
+
+    /**
+     * Remove todas as entradas de um chunk.
+     */
+    public void removeChunk(ChunkPos pos) {
+        if (isEmpty()) {
+            return;
+        }
+        for (LongIterator iterator = keySet().iterator(); iterator.hasNext(); ) {
+            if (BlockPosKeys.isInChunk(iterator.nextLong(), pos)) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.barium.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+/**
+ * Mapa de posição de bloco para objeto, com chave long (BlockPos.asLong) em tabela de endereçamento aberto.
+ * Não guarda objetos BlockPos: consultas com posições mutáveis não alocam. Não é thread-safe.
+ *
+ * @param <V> O tipo dos valores.
+ */
+public class BlockPosMap<V> extends Long2ObjectOpenHashMap<V> {
+
+    public V get(BlockPos pos) {
+        return get(pos.asLong());
+    }
+
+    public V put(BlockPos pos, V value) {
+        return put(pos.asLong(), value);
+    }
+
+    public V remove(BlockPos pos) {
+        return remove(pos.asLong());
+    }
+
+    /**
+     * Remove todas as entradas de um chunk.
+     */
+    public void removeChunk(ChunkPos pos) {
+        if (isEmpty()) {
+            return;
+        }
+        for (LongIterator iterator = keySet().iterator(); iterator.hasNext(); ) {
+            if (BlockPosKeys.isInChunk(iterator.nextLong(), pos)) {
+                iterator.remove();
+            }
+        }
+    }
+}